@@ -2,24 +2,79 @@ package ai;
 
 import ai.constant.AiConst;
 import ai.utility.AiUtils;
+import ai.utility.BitBoard;
+import ai.utility.MoveList;
+import ai.utility.SearchPosition;
+import ai.utility.VcfSolver;
+import gui.Background;
 import gui.constant.GuiConst;
-import observer.GameStatusChecker;
 
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This abstract class is the prototype of all AI agents.
  *
  * @author Cirun Zhang
- * @version 1.1
+ * @version 1.2
  */
 public abstract class Agent {
     static int maximumSearchDepth = 5;
 
-    static int count = 0;
+    /**
+     * Number of nodes searched by the running search, the workers of the parallel searches count at the same time
+     */
+    static final LongAdder count = new LongAdder();
 
     public static int aiPieceType = -1;
 
+    /**
+     * Search budget per move, 0 for no limit. Without any budget the agents search to {@link #maximumSearchDepth}
+     */
+    private static long timeBudget = 0;
+
+    private static long nodeBudget = 0;
+
+    /**
+     * State of the running iterative deepening, the search is only stopped after the first iteration completes
+     */
+    private static boolean isIterating = false;
+
+    private static boolean hasCompletedIteration = false;
+
+    private static volatile boolean isSearchStopped = false;
+
+    private static long deadline;
+
+    private static final LongAdder searchedNodes = new LongAdder();
+
+    /**
+     * Number of searches repeated by the aspiration windows of the running iterative deepening
+     */
+    private static int windowResearches;
+
+    /**
+     * Number of threads of the parallel searches, 1 for serial search
+     */
+    static int threadCount = 1;
+
+    private static ForkJoinPool pool;
+
+    /**
+     * Solver of victory by continuous fours run before the main search, its hash table is kept across moves
+     */
+    private static final VcfSolver vcfSolver = new VcfSolver();
+
+    /**
+     * Whether the alpha beta agents reduce the depth of late quiet moves
+     */
+    private static boolean isLateMoveReduction = true;
+
+    /**
+     * Whether the leaves of alpha beta pruning are extended by the quiescence search of fours
+     */
+    static boolean isQuiescenceSearch = true;
+
     /**
      * Check whether the chessboard is empty or not
      *
@@ -43,36 +98,277 @@ public abstract class Agent {
     /**
      * Detects whether next move can win the game or not, if next move wins then returns that node,
      *
-     * @param chess     2-dimensional array represents the chessboard
-     * @param moves     List contains all possible move represents as an array [x, y, score]
+     * @param position  Current search position
+     * @param moves     List contains all possible moves
      * @param pieceType Identification of black(1) and white(-1)
      * @return Node leeds to win or null if no matched situation
      */
-    static Node terminalCheck(int[][] chess, List<int[]> moves, int pieceType) {
+    static Node terminalCheck(SearchPosition position, MoveList moves, int pieceType) {
+        BitBoard board = position.getBoard();
+
         //detects if next move can win directly
-        for (int[] move : moves) {
-            int newX = move[0];
-            int newY = move[1];
-            int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType);
-            if (GameStatusChecker.isFiveInLine(nextMove, newX, newY)) {
-                return new Node(move[0], move[1], 500000, nextMove);
+        for (int i = 0; i < moves.size(); i++) {
+            if (isWinningMove(board, moves.getX(i), moves.getY(i), pieceType)) {
+                return new Node(moves.getX(i), moves.getY(i), 500000,
+                    AiUtils.nextMoveChessboard(position.getChess(), moves.getX(i), moves.getY(i), pieceType));
             }
         }
 
         //prevents opponent's direct win
-        for (int[] move : moves) {
-            int newX = move[0];
-            int newY = move[1];
-            int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType * -1);
-            if (GameStatusChecker.isFiveInLine(nextMove, newX, newY)) {
-                return new Node(move[0], move[1], 500000, nextMove);
+        for (int i = 0; i < moves.size(); i++) {
+            if (isWinningMove(board, moves.getX(i), moves.getY(i), pieceType * -1)) {
+                return new Node(moves.getX(i), moves.getY(i), 500000,
+                    AiUtils.nextMoveChessboard(position.getChess(), moves.getX(i), moves.getY(i), pieceType * -1));
             }
         }
 
         return null;
     }
 
+    /**
+     * Tries a move on the bitboard and determines whether it forms five in line, the bitboard is left unchanged
+     *
+     * @param board     The bitboard
+     * @param x         X coordinate of the move
+     * @param y         Y coordinate of the move
+     * @param pieceType Identification of black(1) and white(-1)
+     * @return A boolean indicates whether the move wins the game
+     */
+    static boolean isWinningMove(BitBoard board, int x, int y, int pieceType) {
+        board.set(x, y, pieceType);
+        boolean isWin = board.isFiveInLine(x, y);
+        board.clear(x, y);
+        return isWin;
+    }
+
+    /**
+     * Searches a victory by continuous fours of the AI, a found win needs no full-width search
+     *
+     * @param chess The chessboard
+     * @return Coordinates of the first move of the winning line, or null if no win is found
+     */
+    static int[] findVcfMove(int[][] chess) {
+        if (!vcfSolver.solve(chess, aiPieceType)) {
+            return null;
+        }
+        int[] line = vcfSolver.getWinningLine();
+        System.out.println("VCF found, line length: " + line.length + " nodes: " + vcfSolver.getNodes());
+        Background.addMessage("VCF found, " + (line.length + 1) / 2 + " moves to win");
+        return new int[] {BitBoard.cellX(line[0]), BitBoard.cellY(line[0]), aiPieceType};
+    }
+
     public static void setMaximumSearchDepth(int depth) {
         maximumSearchDepth = depth;
     }
+
+    /**
+     * Sets the number of threads used to search a move
+     *
+     * @param threads Number of threads, 1 for serial search
+     */
+    public static synchronized void setThreadCount(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        threadCount = threads;
+    }
+
+    /**
+     * Returns the thread pool of the parallel searches, it is created on first use
+     *
+     * @return Pool with {@link #threadCount} threads
+     */
+    static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(threadCount);
+        }
+        return pool;
+    }
+
+    /**
+     * Turns late move reductions on or off
+     *
+     * @param isEnabled Whether late quiet moves are searched at reduced depth
+     */
+    public static void setLateMoveReduction(boolean isEnabled) {
+        isLateMoveReduction = isEnabled;
+    }
+
+    /**
+     * Turns the quiescence search at the leaves on or off
+     *
+     * @param isEnabled Whether the leaves are extended by fours and the replies to them
+     */
+    public static void setQuiescenceSearch(boolean isEnabled) {
+        isQuiescenceSearch = isEnabled;
+    }
+
+    /**
+     * Returns the number of plies a move is searched shallower. After the first few moves of a node the heuristic
+     * sort rarely finds the best move, so the later moves are searched at reduced depth unless the node is too
+     * shallow or the move makes or blocks a three or a four, see {@link AiUtils#isThreatMove}. It must be called
+     * before the move is played
+     *
+     * @param position       Current search position
+     * @param moves          Generated moves of the node
+     * @param index          Index of the move in the moves
+     * @param pieceType      Type of the piece of the player to move
+     * @param remainingDepth Depth searched below the node
+     * @return Reduction of the move, 0 if it is searched to full depth
+     */
+    static int lateMoveReduction(SearchPosition position, MoveList moves, int index, int pieceType,
+        int remainingDepth) {
+        if (!isLateMoveReduction || index < AiConst.LMR_FULL_DEPTH_MOVES || remainingDepth < AiConst.LMR_MIN_DEPTH
+            || AiUtils.isThreatMove(position.getBoard(), moves.getCell(index), pieceType)) {
+            return 0;
+        }
+        return index < AiConst.LMR_DEEP_REDUCTION_MOVES ? 1 : 2;
+    }
+
+    /**
+     * Sets the wall-clock budget of a move
+     *
+     * @param milliseconds Time budget in milliseconds, 0 for no limit
+     */
+    public static void setTimeBudget(long milliseconds) {
+        timeBudget = milliseconds;
+    }
+
+    /**
+     * Sets the node budget of a move
+     *
+     * @param nodes Maximum number of nodes searched, 0 for no limit
+     */
+    public static void setNodeBudget(long nodes) {
+        nodeBudget = nodes;
+    }
+
+    /**
+     * Runs a root search, the search goes to {@link #maximumSearchDepth} if no budget is set, otherwise it is
+     * repeated by iterative deepening with depth 1, 2, 3... plies until the budget runs out. Every iteration after the
+     * first is an aspiration search around the score of the previous iteration
+     *
+     * @param rootSearch Searches the root to {@link #maximumSearchDepth}
+     * @return Best move of the last completed search
+     */
+    static Node searchWithinBudget(RootSearch rootSearch) {
+        if (timeBudget <= 0 && nodeBudget <= 0) {
+            return rootSearch.search(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        int configuredDepth = maximumSearchDepth;
+        deadline = System.nanoTime() + timeBudget * 1000000;
+        searchedNodes.reset();
+        windowResearches = 0;
+        isIterating = true;
+        Node bestMove = null;
+        try {
+            for (int plies = 1; plies <= AiConst.MAXIMUM_ITERATIVE_DEPTH; plies++) {
+                //the root is at depth 1, so a search of n plies stops at depth n + 1
+                maximumSearchDepth = plies + 1;
+                Node result = bestMove == null ? rootSearch.search(Integer.MIN_VALUE, Integer.MAX_VALUE) :
+                    aspirationWindowSearch(rootSearch, bestMove.getScore());
+                if (isSearchStopped) {
+                    //the result of an unfinished iteration is discarded
+                    break;
+                }
+                bestMove = result;
+                hasCompletedIteration = true;
+                Background.addMessage("Completed depth " + plies + ": (x, " + result.getX() + ") (y, " + result.getY()
+                    + ") score " + result.getScore());
+            }
+            Background.addMessage("Aspiration re-searches: " + windowResearches);
+        } finally {
+            maximumSearchDepth = configuredDepth;
+            isIterating = false;
+            hasCompletedIteration = false;
+            isSearchStopped = false;
+        }
+        return bestMove;
+    }
+
+    /**
+     * Searches the root with a window of {@link AiConst#WINDOW_SIZE_ASPIRATION} around the expected score. If the
+     * score falls outside the window, the failed side is widened around the score and the root is searched again,
+     * the widening doubles every time until the window is unbounded
+     *
+     * @param rootSearch    Searches the root to {@link #maximumSearchDepth}
+     * @param expectedScore Expected score of the root
+     * @return Best move of the search inside the window
+     */
+    static Node aspirationWindowSearch(RootSearch rootSearch, int expectedScore) {
+        long delta = AiConst.WINDOW_SIZE_ASPIRATION;
+        int alpha = toScore(expectedScore - delta);
+        int beta = toScore(expectedScore + delta);
+        while (true) {
+            Node result = rootSearch.search(alpha, beta);
+            if (isSearchStopped) {
+                return result;
+            }
+            int score = result.getScore();
+            if (score <= alpha && alpha > Integer.MIN_VALUE) {
+                //fail low
+                alpha = toScore(score - delta);
+            } else if (score >= beta && beta < Integer.MAX_VALUE) {
+                //fail high
+                beta = toScore(score + delta);
+            } else {
+                return result;
+            }
+            windowResearches++;
+            delta *= 2;
+        }
+    }
+
+    /**
+     * Clamps a bound of a search window to the range of scores
+     */
+    private static int toScore(long bound) {
+        return (int)Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, bound));
+    }
+
+    /**
+     * Counts a searched node and checks the budget of iterative deepening, once the budget runs out every later
+     * call returns true until the search returns
+     *
+     * @return A boolean indicates whether the search must stop
+     */
+    static boolean isOutOfBudget() {
+        if (!isIterating || isSearchStopped) {
+            return isSearchStopped;
+        }
+        searchedNodes.increment();
+        if (hasCompletedIteration && ((nodeBudget > 0 && searchedNodes.sum() > nodeBudget) || (timeBudget > 0
+            && System.nanoTime() >= deadline))) {
+            isSearchStopped = true;
+        }
+        return isSearchStopped;
+    }
+
+    /**
+     * Determines whether the running search is stopped by its budget, the partial results must not be kept
+     *
+     * @return A boolean indicates whether the search is stopped
+     */
+    static boolean isSearchStopped() {
+        return isSearchStopped;
+    }
+
+    /**
+     * Search of the root of an agent
+     */
+    interface RootSearch {
+        /**
+         * Searches the root to {@link #maximumSearchDepth} inside a window
+         *
+         * @param alpha Lower bound of the window, {@link Integer#MIN_VALUE} for unbounded
+         * @param beta  Upper bound of the window, {@link Integer#MAX_VALUE} for unbounded
+         * @return Best move of the root, its score is a bound if it falls outside the window
+         */
+        Node search(int alpha, int beta);
+    }
 }
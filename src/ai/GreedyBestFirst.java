@@ -1,5 +1,6 @@
 package ai;
 
+import ai.utility.BitBoard;
 import ai.utility.ChessboardScanUtils;
 import ai.utility.HeuristicChessboardUtils;
 import gui.constant.GuiConst;
@@ -68,9 +69,12 @@ public class GreedyBestFirst extends Agent {
      * @return Score
      */
     private static int markPiece(int[][] chess, int x, int y, int pieceType) {
-        return HeuristicChessboardUtils.eval(ChessboardScanUtils.horizontalAdjacentPieces8(chess, x, y, pieceType))
-            + HeuristicChessboardUtils.eval(ChessboardScanUtils.verticalAdjacentPieces8(chess, x, y, pieceType))
-            + HeuristicChessboardUtils.eval(ChessboardScanUtils.diagonalAdjacentPieces8(chess, x, y, pieceType))
-            + HeuristicChessboardUtils.eval(ChessboardScanUtils.antiDiagonalAdjacentPieces8(chess, x, y, pieceType));
+        int score = 0;
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            score += HeuristicChessboardUtils.evalCode(
+                ChessboardScanUtils.adjacentCode(chess, x, y, direction, ChessboardScanUtils.RADIUS_8, pieceType),
+                2 * ChessboardScanUtils.RADIUS_8 + 1);
+        }
+        return score;
     }
 }
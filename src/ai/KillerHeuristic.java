@@ -1,30 +1,36 @@
 package ai;
 
-import ai.constant.AiConst;
 import ai.utility.AiUtils;
 import ai.utility.HeuristicChessboardUtils;
+import ai.utility.KillerTable;
+import ai.utility.MoveList;
+import ai.utility.SearchPosition;
 import gui.Background;
 
-import java.util.List;
-
 /**
  * This class is an AI agent uses killer heuristics
  * <p>
  * The killer heuristic attempts to produce a cutoff by assuming that a move that produced
  * a cutoff in another branch of the game tree at the same depth is likely to produce a
- * cutoff in the present position.
+ * cutoff in the present position. Two killer moves are kept for every depth and are searched first at every
+ * interior node.
  *
  * @author Cirun Zhang
- * @version 1.2
+ * @version 1.3
  */
 public class KillerHeuristic extends Agent {
     private KillerHeuristic() {
     }
 
     /**
-     * A 3-dimensional array used to store killer moves with the format of [depth][index][location]
+     * Killer moves of every depth, resized for the search depth of every search
      */
-    private static int[][][] killerMoves = new int[maximumSearchDepth][2][];
+    private static final KillerTable killerTable = new KillerTable();
+
+    /**
+     * Best move found at the root of the last killer heuristic search
+     */
+    private static Node bestRootMove;
 
     /**
      * Start Alpha-beta pruning with killer heuristic
@@ -36,12 +42,17 @@ public class KillerHeuristic extends Agent {
         if (isOpening(chess)) {
             return new int[] {7, 7, aiPieceType};
         } else {
-            //instantiate root node with preset x and y to the center of the chessboard(good for pruning)
-            resetKillerMoves();
-            Node root = new Node(-1, -1, -1, chess);
-            Node bestMove;
-
-            bestMove = killerMaximizer(root, 1, aiPieceType, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            int[] vcfMove = findVcfMove(chess);
+            if (vcfMove != null) {
+                return vcfMove;
+            }
+            SearchPosition position = new SearchPosition(chess);
+            Node bestMove = searchWithinBudget((alpha, beta) -> {
+                //the killer moves are indexed by depth, so they are reset for every search depth
+                killerTable.reset(maximumSearchDepth);
+                killerMaximizer(position, 1, aiPieceType, alpha, beta);
+                return bestRootMove;
+            });
 
             int[] result = bestMove.getCoordinates();
             Background.addMessage(
@@ -52,181 +63,122 @@ public class KillerHeuristic extends Agent {
     }
 
     /**
-     * This methods is the maximizer of alpha beta pruning with killer heuristic
+     * This methods is the maximizer of alpha beta pruning with killer heuristic. Moves are played on the position
+     * in place, the best move of the root is stored in {@link #bestRootMove}
      *
-     * @param root      Current tree node
+     * @param position  Current search position
      * @param depth     Current depth of the node
      * @param pieceType Initializes to the piece type of AI
      * @param alpha     Alpha value for Max node
      * @param beta      Beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node killerMaximizer(Node root, int depth, int pieceType, int alpha, int beta) {
-        count++;
+    private static int killerMaximizer(SearchPosition position, int depth, int pieceType, int alpha, int beta) {
+        count.increment();
+        if (isOutOfBudget()) {
+            return 0;
+        }
         //base case
         if (depth >= maximumSearchDepth) {
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            return HeuristicChessboardUtils.heuristic(position);
         }
 
-        int[][] chess = root.getChess();
         int bestScore = Integer.MIN_VALUE;
-        Node bestChild = null;
-
-        List<int[]> moves = AiUtils.moveGeneratorWithHeuristicSort(chess, 24);
+        int bestX = -1;
+        int bestY = -1;
 
-        //merge killer moves with all possible moves
-        if (depth == 2 && killerMoves[depth][0] != null && isKillerMoveLegal(chess, killerMoves[depth][0])) {
-            System.out.println("Added");
-            //merge
-            moves.add(0, killerMoves[depth][0]);
-        }
+        MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
 
         //goes terminal check
         if (depth == 1) {
-            Node n = MinimaxAbp.terminalCheck(chess, moves, pieceType);
+            Node n = MinimaxAbp.terminalCheck(position, moves, pieceType);
             if (n != null) {
-                return n;
+                bestRootMove = n;
+                return n.getScore();
             }
         }
 
+        //merge killer moves with all possible moves
+        killerTable.promote(moves, depth);
+
         for (int i = 0; i < moves.size(); i++) {
-            int newX = moves.get(i)[0];
-            int newY = moves.get(i)[1];
-            int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType);
-            Node child = new Node(newX, newY, -1, nextMove);
+            int newX = moves.getX(i);
+            int newY = moves.getY(i);
+            position.makeMove(newX, newY, pieceType);
+            int score = killerMinimizer(position, depth + 1, pieceType * -1, alpha, beta);
+            position.unmakeMove();
 
-            int score = killerMinimizer(child, depth + 1, pieceType * -1, alpha, beta).getScore();
             if (score > bestScore) {
                 bestScore = score;
-                bestChild = child;
+                bestX = newX;
+                bestY = newY;
                 alpha = score;
             }
             //beta pruning
             if (score >= beta) {
-                //since depth start at 1 so the decrement is necessary
-                addKillerMove(depth,
-                    new int[] {newX, newY, (moves.size() - i - 1) * (int)Math.pow(24, maximumSearchDepth - depth - 1)});
+                killerTable.add(depth, moves.getCell(i));
+                position.getHistory().add(pieceType, moves.getCell(i), maximumSearchDepth - depth);
                 break;
             }
         }
 
-        root.setScore(bestScore);
-
         if (depth == 1) {
-            System.out.println("total nodes: " + count);
-            Background.addMessage("Total nodes: " + count);
-            count = 0;
-            return bestChild;
+            System.out.println("total nodes: " + count.sum());
+            Background.addMessage("Total nodes: " + count.sum());
+            count.reset();
+            bestRootMove = new Node(bestX, bestY, bestScore);
         }
 
-        return root;
+        return bestScore;
     }
 
     /**
      * This methods is the minimizer of alpha beta pruning with killer heuristic
      *
-     * @param root      Current tree node
+     * @param position  Current search position
      * @param depth     Current depth of the node
      * @param pieceType Identification of players, 1 for black piece and -1 white piece
      * @param alpha     Alpha value for Max node
      * @param beta      Beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node killerMinimizer(Node root, int depth, int pieceType, int alpha, int beta) {
-        count++;
+    private static int killerMinimizer(SearchPosition position, int depth, int pieceType, int alpha, int beta) {
+        count.increment();
+        if (isOutOfBudget()) {
+            return 0;
+        }
         //base case
         if (depth >= maximumSearchDepth) {
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            return HeuristicChessboardUtils.heuristic(position);
         }
 
-        int[][] chess = root.getChess();
         int bestScore = Integer.MAX_VALUE;
-        Node bestChild = null;
 
-        List<int[]> moves = AiUtils.moveGeneratorWithHeuristicSort(chess, 24);
+        MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
 
         //merge killer moves with all possible moves
-        if (depth == 2 && killerMoves[depth][0] != null && isKillerMoveLegal(chess, killerMoves[depth][0])) {
-            //merge
-            System.out.println("Added");
-            moves.add(0, killerMoves[depth][0]);
-        }
-
-        if (depth == 1) {
-            Node n = MinimaxAbp.terminalCheck(chess, moves, pieceType);
-            if (n != null) {
-                return n;
-            }
-        }
+        killerTable.promote(moves, depth);
 
         //for each child
         for (int i = 0; i < moves.size(); i++) {
-            int newX = moves.get(i)[0];
-            int newY = moves.get(i)[1];
-            int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType);
-            Node child = new Node(newX, newY, -1, nextMove);
+            int newX = moves.getX(i);
+            int newY = moves.getY(i);
+            position.makeMove(newX, newY, pieceType);
+            int score = killerMaximizer(position, depth + 1, pieceType * -1, alpha, beta);
+            position.unmakeMove();
 
-            int score = killerMaximizer(child, depth + 1, pieceType * -1, alpha, beta).getScore();
             if (score < bestScore) {
                 bestScore = score;
-                bestChild = child;
                 beta = score;
             }
             //alpha pruning
             if (score <= alpha) {
-                //since depth start at 1 so the decrement is necessary
-                addKillerMove(depth,
-                    new int[] {newX, newY, (moves.size() - i - 1) * (int)Math.pow(24, maximumSearchDepth - depth - 1)});
+                killerTable.add(depth, moves.getCell(i));
+                position.getHistory().add(pieceType, moves.getCell(i), maximumSearchDepth - depth);
                 break;
             }
         }
 
-        root.setScore(bestScore);
-
-        if (depth == 1) {
-            System.out.println("total nodes: " + count);
-            Background.addMessage("Total nodes: " + count);
-            count = 0;
-            return bestChild;
-        }
-
-        return root;
-    }
-
-    /**
-     * Reset all the killer moves
-     */
-    private static void resetKillerMoves() {
-        killerMoves = new int[maximumSearchDepth][2][];
-    }
-
-    /**
-     * Add new killer moves to the array
-     *
-     * @param depth Depth of occurrence of pruning
-     * @param move  Killer move
-     */
-    private static void addKillerMove(int depth, int[] move) {
-        if (killerMoves[depth][0] == null) {
-            killerMoves[depth][0] = move;
-        } else if (killerMoves[depth][0][2] < move[2]) {
-            //compare how many nodes are pruned
-            killerMoves[depth][0] = move;
-        }
-    }
-
-    /**
-     * Check the legality of the killer move
-     *
-     * @param chess      The chessboard
-     * @param killerMove Killer move
-     * @return A boolean indicates whether the killer move is legal or not
-     */
-    private static boolean isKillerMoveLegal(int[][] chess, int[] killerMove) {
-        System.out.println("coor " + killerMove[0] + " " + killerMove[1] + (chess[killerMove[0]][killerMove[1]]
-            == AiConst.EMPTY_STONE));
-        return chess[killerMove[0]][killerMove[1]] == AiConst.EMPTY_STONE;
+        return bestScore;
     }
 }
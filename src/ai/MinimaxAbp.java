@@ -2,11 +2,17 @@ package ai;
 
 import ai.constant.AiConst;
 import ai.utility.AiUtils;
+import ai.utility.BitBoard;
 import ai.utility.HeuristicChessboardUtils;
+import ai.utility.MoveList;
+import ai.utility.SearchPosition;
 import gui.Background;
 import gui.constant.GuiConst;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is an AI agent uses miniMax, alpha beta pruning and aspiration search
@@ -15,6 +21,11 @@ import java.util.List;
  * @version 1.2
  */
 public class MinimaxAbp extends Agent {
+    /**
+     * Best move found at the root of the last alpha beta search
+     */
+    private static Node bestRootMove;
+
     private MinimaxAbp() {
     }
 
@@ -45,7 +56,7 @@ public class MinimaxAbp extends Agent {
      * @return The most valuable node
      */
     private static Node miniMax(Node root, int depth, int pieceType, boolean isMax) {
-        count++;
+        count.increment();
         if (depth >= maximumSearchDepth) {
             root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
             return root;
@@ -83,8 +94,8 @@ public class MinimaxAbp extends Agent {
         root.setScore(bestScore);
 
         if (depth == 1) {
-            System.out.println("Minimax total nodes: " + count);
-            count = 0;
+            System.out.println("Minimax total nodes: " + count.sum());
+            count.reset();
             return bestChild;
         }
 
@@ -101,10 +112,13 @@ public class MinimaxAbp extends Agent {
         if (isOpening(chess)) {
             return new int[] {7, 7, aiPieceType};
         } else {
-            Node root = new Node(-1, -1, -1, chess);
-            Node bestMove;
-
-            bestMove = maximizer(root, 1, aiPieceType, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            int[] vcfMove = findVcfMove(chess);
+            if (vcfMove != null) {
+                return vcfMove;
+            }
+            SearchPosition position = new SearchPosition(chess);
+            maximizer(position, 1, aiPieceType, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            Node bestMove = bestRootMove;
 
             int[] result = new int[2];
             result[0] = bestMove.getX();
@@ -117,112 +131,102 @@ public class MinimaxAbp extends Agent {
 
     /**
      * Maximizer of alpha beta pruning, it prunes the current node when the alpha value of current node is greater
-     * than or equal to the beta value of its ancient node
+     * than or equal to the beta value of its ancient node. Moves are played on the position in place and taken
+     * back after the child is searched, the best move of the root is stored in {@link #bestRootMove}
      *
-     * @param root      Current tree node
+     * @param position  Current search position
      * @param depth     Current depth of the node
      * @param pieceType Identification of players, 1 for black and -1 for white
      * @param alpha     alpha value for Max node
      * @param beta      beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node maximizer(Node root, int depth, int pieceType, int alpha, int beta) {
-        count++;
+    private static int maximizer(SearchPosition position, int depth, int pieceType, int alpha, int beta) {
+        count.increment();
         //base case
         if (depth >= maximumSearchDepth) {
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            return HeuristicChessboardUtils.heuristic(position);
         }
 
-        int[][] chess = root.getChess();
+        int[][] chess = position.getChess();
         int bestScore = Integer.MIN_VALUE;
-        Node bestChild = null;
+        int bestX = -1;
+        int bestY = -1;
 
+        search:
         for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
             for (int j = 0; j < GuiConst.TILE_NUM_PER_ROW; j++) {
                 // for each possible moves, do depth first search
                 if (chess[i][j] == 0) {
-                    int[][] nextMove = AiUtils.nextMoveChessboard(chess, i, j, pieceType);
-                    Node child = new Node(i, j, -1, nextMove);
+                    position.makeMove(i, j, pieceType);
+                    int score = minimizer(position, depth + 1, pieceType * -1, alpha, beta);
+                    position.unmakeMove();
 
-                    int score = minimizer(child, depth + 1, pieceType * -1, alpha, beta).getScore();
                     if (score > bestScore) {
                         bestScore = score;
-                        bestChild = child;
+                        bestX = i;
+                        bestY = j;
                         alpha = score;
                     }
                     //beta pruning
                     if (score >= beta) {
-                        root.setScore(bestScore);
-                        return root;
+                        break search;
                     }
                 }
             }
         }
 
-        root.setScore(bestScore);
-
         if (depth == 1) {
-            System.out.println("total nodes: " + count);
-            count = 0;
-            return bestChild;
+            System.out.println("total nodes: " + count.sum());
+            count.reset();
+            bestRootMove = new Node(bestX, bestY, bestScore);
         }
 
-        return root;
+        return bestScore;
     }
 
     /**
      * Minimizer of alpha beta pruning, it prunes the current node when the beta value of current node is less than
      * or equal to the alpha value of its ancient node
      *
-     * @param root      Current tree node
+     * @param position  Current search position
      * @param depth     Current depth of the node
      * @param pieceType Identification of players, 1 for black and -1 for white
      * @param alpha     Alpha value for Max node
      * @param beta      Beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node minimizer(Node root, int depth, int pieceType, int alpha, int beta) {
-        count++;
+    private static int minimizer(SearchPosition position, int depth, int pieceType, int alpha, int beta) {
+        count.increment();
         //base case
         if (depth >= maximumSearchDepth) {
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            return HeuristicChessboardUtils.heuristic(position);
         }
 
-        int[][] chess = root.getChess();
+        int[][] chess = position.getChess();
         int bestScore = Integer.MAX_VALUE;
-        Node bestChild = null;
 
         for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
             for (int j = 0; j < GuiConst.TILE_NUM_PER_ROW; j++) {
                 // for each possible moves, do depth first search
                 if (chess[i][j] == 0) {
-                    int[][] nextMove = AiUtils.nextMoveChessboard(chess, i, j, pieceType);
-                    Node child = new Node(i, j, -1, nextMove);
+                    position.makeMove(i, j, pieceType);
+                    int score = maximizer(position, depth + 1, pieceType * -1, alpha, beta);
+                    position.unmakeMove();
 
-                    int score = maximizer(child, depth + 1, pieceType * -1, alpha, beta).getScore();
                     if (score < bestScore) {
                         bestScore = score;
-                        bestChild = child;
                         beta = score;
                     }
                     //alpha pruning
                     if (score <= alpha) {
-                        root.setScore(bestScore);
-                        return root;
+                        return bestScore;
                     }
                 }
             }
         }
 
-        root.setScore(bestScore);
-
-        if (depth == 1) {
-            return bestChild;
-        }
-
-        return root;
+        return bestScore;
     }
 
     /**
@@ -236,11 +240,19 @@ public class MinimaxAbp extends Agent {
         if (isOpening(chess)) {
             return new int[] {7, 7, aiPieceType};
         } else {
-            //instantiate root node with preset x and y to the center of the chessboard(good for pruning)
-            Node root = new Node(-1, -1, -1, chess);
-            Node bestMove;
-
-            bestMove = maximizerWithSort(root, 1, aiPieceType, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            int[] vcfMove = findVcfMove(chess);
+            if (vcfMove != null) {
+                return vcfMove;
+            }
+            SearchPosition position = new SearchPosition(chess);
+            Node bestMove = searchWithinBudget((alpha, beta) -> {
+                if (threadCount > 1) {
+                    parallelMaximizerWithSort(position, aiPieceType, alpha, beta);
+                } else {
+                    maximizerWithSort(position, 1, aiPieceType, alpha, beta);
+                }
+                return bestRootMove;
+            });
 
             int[] result = bestMove.getCoordinates();
             Background.addMessage(
@@ -251,161 +263,315 @@ public class MinimaxAbp extends Agent {
     }
 
     /**
-     * Maximizer of alpha beta pruning, every possible moves are sorted by the h2 heuristic function
+     * Maximizer of alpha beta pruning, every possible moves are sorted by the h2 heuristic function. Moves are
+     * played on the position in place, the best move of the root is stored in {@link #bestRootMove}
      *
-     * @param root      Current tree node
+     * @param position  Current search position
      * @param depth     Current depth of the node
      * @param pieceType Identification of players, 1 for black piece and -1 for white
      * @param alpha     Alpha value for Max node
      * @param beta      Beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node maximizerWithSort(Node root, int depth, int pieceType, int alpha, int beta) {
-        count++;
+    private static int maximizerWithSort(SearchPosition position, int depth, int pieceType, int alpha, int beta) {
+        count.increment();
+        if (isOutOfBudget()) {
+            return 0;
+        }
         //base case
         if (depth >= maximumSearchDepth) {
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            return leafScore(position, pieceType, alpha, beta);
         }
 
-        int[][] chess = root.getChess();
+        int[][] chess = position.getChess();
         int bestScore = Integer.MIN_VALUE;
-        Node bestChild = null;
+        int bestX = -1;
+        int bestY = -1;
 
-        List<int[]> moves = AiUtils.moveGeneratorWithHeuristicSort(chess, 24);
+        MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
 
         //detect five in row
         if (depth == 1) {
-            Node n = terminalCheck(chess, moves, pieceType);
+            Node n = terminalCheck(position, moves, pieceType);
             if (n != null) {
-                return n;
+                bestRootMove = n;
+                return n.getScore();
             }
         }
 
-        for (int[] move : moves) {
-            int newX = move[0];
-            int newY = move[1];
-            int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType);
-            Node child = new Node(newX, newY, -1, nextMove);
+        for (int i = 0; i < moves.size(); i++) {
+            int reduction = depth > 1 ? lateMoveReduction(position, moves, i, pieceType, maximumSearchDepth - depth)
+                : 0;
+            position.makeMove(moves.getX(i), moves.getY(i), pieceType);
+            int score;
+            if (reduction > 0) {
+                //late move, searched again to full depth only if it beats alpha
+                score = minimizerWithSort(position, depth + 1 + reduction, pieceType * -1, alpha, alpha + 1);
+                if (score > alpha) {
+                    score = minimizerWithSort(position, depth + 1, pieceType * -1, alpha, beta);
+                }
+            } else {
+                score = minimizerWithSort(position, depth + 1, pieceType * -1, alpha, beta);
+            }
+            position.unmakeMove();
 
-            int score = minimizerWithSort(child, depth + 1, pieceType * -1, alpha, beta).getScore();
             if (score > bestScore) {
                 bestScore = score;
-                bestChild = child;
+                bestX = moves.getX(i);
+                bestY = moves.getY(i);
                 alpha = score;
             }
             //beta pruning
             if (score >= beta) {
+                position.getHistory().add(pieceType, moves.getCell(i), maximumSearchDepth - depth);
                 break;
             }
         }
 
-        root.setScore(bestScore);
-
         if (depth == 1) {
-            System.out.println("total nodes: " + count);
-            Background.addMessage("Total nodes: " + count);
-            count = 0;
-            return bestChild;
+            System.out.println("total nodes: " + count.sum());
+            Background.addMessage("Total nodes: " + count.sum());
+            count.reset();
+            bestRootMove = new Node(bestX, bestY, bestScore);
         }
 
-        return root;
+        return bestScore;
+    }
+
+    /**
+     * Root of the parallel alpha beta pruning. The first move is searched alone to establish the alpha value, then
+     * the other moves are searched by the thread pool, each on its own copy of the position, and every finished move
+     * raises the alpha value shared by the moves started later. The best move is stored in {@link #bestRootMove}
+     * and is the same move found by {@link #maximizerWithSort} at the same depth. With late move reductions the
+     * scores below the root depend on the window, so the two searches may rarely disagree.
+     *
+     * @param position  Root search position
+     * @param pieceType Identification of players, 1 for black piece and -1 for white
+     * @param alpha     Alpha value of the root
+     * @param beta      Beta value of the root
+     * @return Score of the root
+     */
+    private static int parallelMaximizerWithSort(SearchPosition position, int pieceType, int alpha, int beta) {
+        count.increment();
+        MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
+
+        //detect five in row
+        Node n = terminalCheck(position, moves, pieceType);
+        if (n != null) {
+            bestRootMove = n;
+            return n.getScore();
+        }
+        if (moves.size() == 0) {
+            bestRootMove = new Node(-1, -1, Integer.MIN_VALUE);
+            return Integer.MIN_VALUE;
+        }
+
+        int[] scores = new int[moves.size()];
+        position.makeMove(moves.getX(0), moves.getY(0), pieceType);
+        scores[0] = minimizerWithSort(position, 2, pieceType * -1, alpha, beta);
+        position.unmakeMove();
+
+        AtomicInteger sharedAlpha = new AtomicInteger(Math.max(alpha, scores[0]));
+        int[][] chess = position.getChess();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 1; i < moves.size(); i++) {
+            int index = i;
+            int x = moves.getX(i);
+            int y = moves.getY(i);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                SearchPosition child = new SearchPosition(chess);
+                child.makeMove(x, y, pieceType);
+                /*The window is one below the shared alpha value, so a move as good as the best move gets its exact
+                score and the tie is broken by the move order as in the serial search*/
+                int bound = sharedAlpha.get();
+                int score = minimizerWithSort(child, 2, pieceType * -1, bound == Integer.MIN_VALUE ? bound : bound - 1,
+                    beta);
+                scores[index] = score;
+                sharedAlpha.accumulateAndGet(score, Math::max);
+            }));
+        }
+        getPool().invoke(ForkJoinTask.adapt(() -> {
+            ForkJoinTask.invokeAll(tasks);
+        }));
+
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+
+        System.out.println("total nodes: " + count.sum());
+        Background.addMessage("Total nodes: " + count.sum());
+        count.reset();
+        bestRootMove = new Node(moves.getX(best), moves.getY(best), scores[best]);
+        return scores[best];
     }
 
     /**
      * Minimizer of alpha beta pruning, every possible moves are sorted by the h2 heuristic function
      *
-     * @param root      Current tree node
+     * @param position  Current search position
      * @param depth     Current depth of the node
      * @param pieceType Identification of players, 1 for black piece and -1 for white
      * @param alpha     Alpha value for Max node
      * @param beta      Beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node minimizerWithSort(Node root, int depth, int pieceType, int alpha, int beta) {
-        count++;
+    private static int minimizerWithSort(SearchPosition position, int depth, int pieceType, int alpha, int beta) {
+        count.increment();
+        if (isOutOfBudget()) {
+            return 0;
+        }
         //base case
         if (depth >= maximumSearchDepth) {
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            return leafScore(position, pieceType, alpha, beta);
         }
 
-        int[][] chess = root.getChess();
         int bestScore = Integer.MAX_VALUE;
-        Node bestChild = null;
 
-        List<int[]> moves = AiUtils.moveGeneratorWithHeuristicSort(chess, 24);
-        if (depth == 1) {
-            Node n = terminalCheck(chess, moves, pieceType);
-            if (n != null) {
-                return n;
+        MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int reduction = lateMoveReduction(position, moves, i, pieceType, maximumSearchDepth - depth);
+            position.makeMove(moves.getX(i), moves.getY(i), pieceType);
+            int score;
+            if (reduction > 0) {
+                //late move, searched again to full depth only if it falls below beta
+                score = maximizerWithSort(position, depth + 1 + reduction, pieceType * -1, beta - 1, beta);
+                if (score < beta) {
+                    score = maximizerWithSort(position, depth + 1, pieceType * -1, alpha, beta);
+                }
+            } else {
+                score = maximizerWithSort(position, depth + 1, pieceType * -1, alpha, beta);
             }
-        }
+            position.unmakeMove();
 
-        for (int[] move : moves) {
-            int newX = move[0];
-            int newY = move[1];
-            int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType);
-            Node child = new Node(newX, newY, -1, nextMove);
-
-            int score = maximizerWithSort(child, depth + 1, pieceType * -1, alpha, beta).getScore();
             if (score < bestScore) {
                 bestScore = score;
-                bestChild = child;
                 beta = score;
             }
             //alpha pruning
             if (score <= alpha) {
+                position.getHistory().add(pieceType, moves.getCell(i), maximumSearchDepth - depth);
                 break;
             }
         }
 
-        root.setScore(bestScore);
+        return bestScore;
+    }
 
-        if (depth == 1) {
-            System.out.println("total nodes: " + count);
-            Background.addMessage("Total nodes: " + count);
-            count = 0;
-            return bestChild;
+    /**
+     * Scores a leaf of alpha beta pruning with sort, by the quiescence search if it is turned on
+     *
+     * @param position  Current search position
+     * @param pieceType Identification of the player to move
+     * @param alpha     Alpha value for Max node
+     * @param beta      Beta value for Min node
+     * @return Score of the leaf
+     */
+    private static int leafScore(SearchPosition position, int pieceType, int alpha, int beta) {
+        if (!isQuiescenceSearch) {
+            return HeuristicChessboardUtils.heuristic(position);
         }
-
-        return root;
+        return quiescence(position, pieceType, alpha, beta, false, AiConst.QUIESCENCE_MAXIMUM_DEPTH);
     }
 
     /**
-     * Starts aspiration search
+     * Quiescence search below a leaf, only the forcing moves are searched so the heuristic is not applied in the
+     * middle of an exchange of fours. A five is played at once and a four of the opponent must be blocked, after
+     * which the player of the blocked four either stops with the heuristic score of the position (stand pat) or plays
+     * another four. A leaf without a four to block is quiet, starting new fours there would let a player pile up fours
+     * while the open threes of the opponent are left unanswered. Fives and fours are only looked for on the lines
+     * through the last two moves, the exchange of fours goes on where the last four and its block were played
      *
-     * @param chess 2-dimension array represents the chessboard
-     * @return Coordinates of the best next move for the AI
+     * @param position       Current search position
+     * @param pieceType      Identification of the player to move
+     * @param alpha          Alpha value for Max node
+     * @param beta           Beta value for Min node
+     * @param isAttacker     A boolean indicates whether the last move blocked a four of the player to move
+     * @param remainingDepth Number of plies the search may still extend
+     * @return Score of the position
      */
-    public static int[] aspirationSearch(int[][] chess, int expectScore) {
-        int expectedLowerBound = expectScore - AiConst.WINDOW_SIZE_ASPIRATION;
-        int expectedUpperBound = expectScore + AiConst.WINDOW_SIZE_ASPIRATION;
-        Node root = new Node(-1, -1, -1, chess);
-        Node bestMove = maximizerWithSort(root, 0, -1, expectedLowerBound, expectedUpperBound);
-        int resultScore = bestMove.getScore();
-
-        if (resultScore > expectedLowerBound && resultScore < expectedUpperBound) {
-            //expected
-            System.out.println("expected");
-            return bestMove.getCoordinatesAndScore();
+    private static int quiescence(SearchPosition position, int pieceType, int alpha, int beta, boolean isAttacker,
+        int remainingDepth) {
+        count.increment();
+        int standPat = HeuristicChessboardUtils.heuristic(position);
+        if (remainingDepth == 0 || position.isLastMoveWinning()) {
+            return standPat;
         }
 
-        if (resultScore >= expectedUpperBound) {
-            //fail high
-            System.out.println("fail high");
-            Node failHighNode = maximizerWithSort(root, 0, -1, resultScore - 1, Integer.MAX_VALUE);
-            return failHighNode.getCoordinatesAndScore();
+        BitBoard board = position.getBoard();
+        int[] points = position.getCellBuffer();
+        int lineNum = position.collectRecentLines(SearchPosition.RECENT_MOVE_NUM);
+        int[] lines = position.getRecentLines();
+        if (AiUtils.fivePoints(board, pieceType, lines, lineNum, points) > 0) {
+            position.makeMove(BitBoard.cellX(points[0]), BitBoard.cellY(points[0]), pieceType);
+            int score = HeuristicChessboardUtils.heuristic(position);
+            position.unmakeMove();
+            return score;
+        }
+
+        boolean isMaxLayer = pieceType == aiPieceType;
+        int bestScore = isMaxLayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        //a single block is searched, against two fives the opponent wins on the next ply anyway
+        boolean isBlock = AiUtils.fivePoints(board, pieceType * -1, lines, lineNum, points) > 0;
+        int pointNum = 1;
+        if (!isBlock) {
+            if (!isAttacker) {
+                return standPat;
+            }
+            //stand pat
+            bestScore = standPat;
+            if (isMaxLayer ? standPat >= beta : standPat <= alpha) {
+                return standPat;
+            }
+            alpha = isMaxLayer ? Math.max(alpha, standPat) : alpha;
+            beta = isMaxLayer ? beta : Math.min(beta, standPat);
+            pointNum = AiUtils.fourPoints(board, pieceType, lines, lineNum, points);
         }
 
-        if (resultScore <= expectedLowerBound) {
-            //fail low
-            System.out.println("fail low");
-            Node failLowNode = maximizerWithSort(root, 0, -1, Integer.MIN_VALUE, resultScore + 1);
+        for (int i = 0; i < pointNum; i++) {
+            position.makeMove(BitBoard.cellX(points[i]), BitBoard.cellY(points[i]), pieceType);
+            //after a block the player of the four goes on
+            int score = quiescence(position, pieceType * -1, alpha, beta, isBlock, remainingDepth - 1);
+            position.unmakeMove();
 
-            return failLowNode.getCoordinatesAndScore();
+            if (isMaxLayer ? score > bestScore : score < bestScore) {
+                bestScore = score;
+                alpha = isMaxLayer ? Math.max(alpha, score) : alpha;
+                beta = isMaxLayer ? beta : Math.min(beta, score);
+            }
+            if (alpha >= beta) {
+                break;
+            }
         }
+        return bestScore;
+    }
 
-        return null;
+    /**
+     * Starts aspiration search, the root is searched with a window around the expected score which is widened if the
+     * score falls outside of it
+     *
+     * @param chess       2-dimension array represents the chessboard
+     * @param expectScore Expected score of the chessboard, e.g. the score of the last move
+     * @return Coordinates of the best next move for the AI
+     */
+    public static int[] aspirationSearch(int[][] chess, int expectScore) {
+        if (isOpening(chess)) {
+            return new int[] {7, 7, aiPieceType};
+        } else {
+            SearchPosition position = new SearchPosition(chess);
+            Node bestMove = aspirationWindowSearch((alpha, beta) -> {
+                maximizerWithSort(position, 1, aiPieceType, alpha, beta);
+                return bestRootMove;
+            }, expectScore);
+
+            int[] result = bestMove.getCoordinates();
+            Background.addMessage(
+                "Computer move : (x, " + result[0] + ") (y, " + result[1] + ") score " + bestMove.getScore());
+
+            return new int[] {result[0], result[1], aiPieceType};
+        }
     }
 }
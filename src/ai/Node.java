@@ -27,6 +27,10 @@ class Node {
      */
     private int[][] chess;
 
+    Node(int x, int y, int score) {
+        this(x, y, score, null);
+    }
+
     Node(int x, int y, int score, int[][] chess) {
         this.x = x;
         this.y = y;
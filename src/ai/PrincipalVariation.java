@@ -0,0 +1,309 @@
+package ai;
+
+import ai.constant.AiConst;
+import ai.utility.AiUtils;
+import ai.utility.BitBoard;
+import ai.utility.KillerTable;
+import ai.utility.MoveList;
+import ai.utility.SearchPosition;
+import ai.utility.TranspositionTable;
+import ai.utility.ZobristKeys;
+import gui.Background;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class is an AI agent uses negamax principal variation search (NegaScout)
+ * <p>
+ * Both players are searched by the same method, the score of a node is always from the view of the player to move
+ * and the score of a child is negated. Only the first move of a node is searched with the full window, the other
+ * moves are searched with a zero window which just proves that they are not better than the first move, and a move
+ * is searched again with the full window only if the zero window search fails high.
+ * <p>
+ * With more than one thread the search runs as Lazy SMP: helper threads search the same position at the same or
+ * one ply deeper depth, and the threads only share the lock-free transposition table. The helpers fill the table
+ * with results and best moves which cut off or order the nodes of the main search, the move is always taken from
+ * the main search.
+ *
+ * @author Cirun Zhang
+ * @version 1.1
+ */
+public class PrincipalVariation extends Agent {
+    /**
+     * Bound of the search window, it can be negated without overflow
+     */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * Transposition table shared by all search threads
+     */
+    private static TranspositionTable transpositionTable =
+        new TranspositionTable(AiConst.TRANSPOSITION_TABLE_SIZE_MB);
+
+    private PrincipalVariation() {
+    }
+
+    /**
+     * Starts principal variation search
+     *
+     * @param chess 2-dimension array represents the chessboard
+     * @return Coordinates of the best next move for the AI
+     */
+    public static int[] startPrincipalVariationSearch(int[][] chess) {
+        if (isOpening(chess)) {
+            return new int[] {7, 7, aiPieceType};
+        } else {
+            int[] vcfMove = findVcfMove(chess);
+            if (vcfMove != null) {
+                return vcfMove;
+            }
+            transpositionTable.newSearch();
+            Searcher searcher = new Searcher(chess, aiPieceType, null);
+            Node bestMove = searchWithinBudget((alpha, beta) -> {
+                //the window of the agent driver may be unbounded, which is not negatable
+                alpha = Math.max(alpha, -INFINITY);
+                if (threadCount > 1) {
+                    return lazySmp(chess, searcher, alpha, beta);
+                }
+                return searcher.searchRoot(maximumSearchDepth, alpha, beta);
+            });
+
+            int[] result = bestMove.getCoordinates();
+            Background.addMessage(
+                "Computer move : (x, " + result[0] + ") (y, " + result[1] + ") score " + bestMove.getScore());
+
+            return new int[] {result[0], result[1], aiPieceType};
+        }
+    }
+
+    /**
+     * Replaces the transposition table with an empty table of the given size
+     *
+     * @param sizeInMb Size of the table in megabytes
+     */
+    public static void setTableSize(int sizeInMb) {
+        transpositionTable = new TranspositionTable(sizeInMb);
+    }
+
+    /**
+     * Searches the root with helper threads, the helpers are stopped once the main search returns
+     *
+     * @param chess        The chessboard
+     * @param mainSearcher Searcher of the calling thread
+     * @param alpha        Alpha value of the main search
+     * @param beta         Beta value of the main search
+     * @return Best move of the main search
+     */
+    private static Node lazySmp(int[][] chess, Searcher mainSearcher, int alpha, int beta) {
+        int depth = maximumSearchDepth;
+        int pieceType = aiPieceType;
+        AtomicBoolean isHelperStopped = new AtomicBoolean(false);
+        Searcher[] helpers = new Searcher[threadCount - 1];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < helpers.length; i++) {
+            Searcher helper = new Searcher(chess, pieceType, isHelperStopped);
+            //every other helper searches one ply deeper, so the threads do not all search the same nodes
+            int helperDepth = depth + (i & 1);
+            helpers[i] = helper;
+            tasks.add(getPool().submit(() -> {
+                helper.searchRoot(helperDepth, -INFINITY, INFINITY);
+            }));
+        }
+
+        try {
+            return mainSearcher.searchRoot(depth, alpha, beta);
+        } finally {
+            isHelperStopped.set(true);
+            long helperNodes = 0;
+            for (int i = 0; i < helpers.length; i++) {
+                tasks.get(i).join();
+                helperNodes += helpers[i].nodes;
+            }
+            Background.addMessage("Helper nodes: " + helperNodes);
+        }
+    }
+
+    /**
+     * This class holds the state of one search thread, nothing of it is shared with other threads
+     */
+    private static class Searcher {
+        private final SearchPosition position;
+
+        /**
+         * Piece type of the AI at the root
+         */
+        private final int rootPieceType;
+
+        /**
+         * Stop signal of a helper thread, null for the main search which is stopped by the search budget
+         */
+        private final AtomicBoolean isHelperStopped;
+
+        private final KillerTable killerTable = new KillerTable();
+
+        private int depthLimit;
+
+        private long nodes;
+
+        private Node bestRootMove;
+
+        Searcher(int[][] chess, int rootPieceType, AtomicBoolean isHelperStopped) {
+            this.position = new SearchPosition(chess);
+            this.rootPieceType = rootPieceType;
+            this.isHelperStopped = isHelperStopped;
+        }
+
+        /**
+         * Searches the root
+         *
+         * @param depthLimit Depth of the leaf nodes, the root is at depth 1
+         * @param alpha      Alpha value of the root
+         * @param beta       Beta value of the root
+         * @return Best move of the root
+         */
+        Node searchRoot(int depthLimit, int alpha, int beta) {
+            this.depthLimit = depthLimit;
+            killerTable.reset(depthLimit);
+            nodes = 0;
+            bestRootMove = null;
+            principalVariationSearch(1, 1, rootPieceType, alpha, beta);
+            if (isHelperStopped == null) {
+                System.out.println("total nodes: " + nodes);
+                Background.addMessage("Total nodes: " + nodes);
+            }
+            return bestRootMove;
+        }
+
+        /**
+         * Negamax principal variation search. Moves are played on the position in place, the best move of the root
+         * is stored in {@link #bestRootMove}
+         *
+         * @param depth     Current depth of the node, a reduced move skips depths
+         * @param ply       Number of moves played from the root plus 1, the killer moves are indexed by it
+         * @param pieceType Identification of the player to move, 1 for black and -1 for white
+         * @param alpha     Lower bound of the window from the view of the player to move
+         * @param beta      Upper bound of the window from the view of the player to move
+         * @return Score of the node from the view of the player to move
+         */
+        private int principalVariationSearch(int depth, int ply, int pieceType, int alpha, int beta) {
+            nodes++;
+            if (isHelperStopped == null ? isOutOfBudget() : isHelperStopped.get()) {
+                return 0;
+            }
+            //base case
+            if (depth >= depthLimit) {
+                return position.getEvaluator().getScore(pieceType);
+            }
+
+            long checkSum = position.getHash() ^ ZobristKeys.turnKey(pieceType);
+            int remainingDepth = depthLimit - depth;
+            long entry = transpositionTable.probe(checkSum);
+
+            //the stored result decides the node if it is searched deep enough, the root always searches its moves
+            if (depth > 1 && entry != 0 && TranspositionTable.getDepth(entry) >= remainingDepth) {
+                int score = TranspositionTable.getScore(entry);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+
+            int bestScore = -INFINITY;
+            int bestMove = -1;
+            int originalAlpha = alpha;
+
+            MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
+
+            //detect five in row
+            if (depth == 1) {
+                Node n = terminalCheck(position, moves, pieceType);
+                if (n != null) {
+                    bestRootMove = n;
+                    return n.getScore();
+                }
+            }
+
+            //the best move stored by an earlier search or another thread is searched first, then the killer moves
+            killerTable.promote(moves, ply);
+            if (entry != 0) {
+                promoteHashMove(moves, TranspositionTable.getBestMove(entry));
+            }
+
+            for (int i = 0; i < moves.size(); i++) {
+                int reduction = depth > 1 ? lateMoveReduction(position, moves, i, pieceType, remainingDepth) : 0;
+                position.makeMove(moves.getX(i), moves.getY(i), pieceType);
+                int score;
+                if (i == 0) {
+                    score = -principalVariationSearch(depth + 1, ply + 1, pieceType * -1, -beta, -alpha);
+                } else {
+                    score = alpha + 1;
+                    if (reduction > 0) {
+                        //late move, searched shallower first and to full depth only if it beats alpha
+                        score = -principalVariationSearch(depth + 1 + reduction, ply + 1, pieceType * -1, -alpha - 1,
+                            -alpha);
+                    }
+                    //zero window search, searches again if the move may be better than the best move
+                    if (score > alpha) {
+                        score = -principalVariationSearch(depth + 1, ply + 1, pieceType * -1, -alpha - 1, -alpha);
+                    }
+                    if (score > alpha && score < beta) {
+                        score = -principalVariationSearch(depth + 1, ply + 1, pieceType * -1, -beta, -alpha);
+                    }
+                }
+                position.unmakeMove();
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = moves.getCell(i);
+                }
+                if (score > alpha) {
+                    alpha = score;
+                }
+                //beta pruning
+                if (alpha >= beta) {
+                    killerTable.add(ply, moves.getCell(i));
+                    position.getHistory().add(pieceType, moves.getCell(i), depthLimit - depth);
+                    break;
+                }
+            }
+
+            //the scores of a stopped search are incomplete
+            boolean isStopped = isHelperStopped == null ? isSearchStopped() : isHelperStopped.get();
+            if (moves.size() > 0 && !isStopped) {
+                int bound = TranspositionTable.EXACT;
+                if (bestScore <= originalAlpha) {
+                    bound = TranspositionTable.UPPER_BOUND;
+                } else if (bestScore >= beta) {
+                    bound = TranspositionTable.LOWER_BOUND;
+                }
+                transpositionTable.store(checkSum, remainingDepth, bestScore, bound, bestMove);
+            }
+
+            if (depth == 1) {
+                bestRootMove = bestMove < 0 ? new Node(-1, -1, bestScore) :
+                    new Node(BitBoard.cellX(bestMove), BitBoard.cellY(bestMove), bestScore);
+            }
+
+            return bestScore;
+        }
+
+        /**
+         * Puts the hash move in front of the generated moves, a move not generated is added if it is still legal
+         *
+         * @param moves    Generated moves
+         * @param hashMove Cell index of the hash move, or -1 if unknown
+         */
+        private void promoteHashMove(MoveList moves, int hashMove) {
+            if (hashMove < 0 || moves.moveToFront(hashMove)) {
+                return;
+            }
+            if (position.getChess()[BitBoard.cellX(hashMove)][BitBoard.cellY(hashMove)] == AiConst.EMPTY_STONE) {
+                moves.addFirst(hashMove, 0);
+            }
+        }
+    }
+}
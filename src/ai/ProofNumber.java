@@ -0,0 +1,117 @@
+package ai;
+
+import ai.constant.AiConst;
+import ai.utility.BitBoard;
+import ai.utility.ProofNumberSolver;
+import gui.Background;
+
+/**
+ * This class is an AI agent uses depth-first proof-number search
+ * <p>
+ * The search tries to prove or disprove a win of the AI by threat sequences within a node limit, see
+ * {@link ProofNumberSolver}. A proven win is played along its principal line, and the proof is repeated on every move
+ * because the opponent may choose another defence. Without a proof the move is decided by alpha beta pruning.
+ * <p>
+ * {@link #analyse} solves any position, e.g. {@code GameController.chess}, for the player to move and keeps the proof
+ * number, the disproof number and the principal line of the result.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class ProofNumber extends Agent {
+    /**
+     * Solver of the proof-number search, its node table is kept across moves
+     */
+    private static ProofNumberSolver solver = new ProofNumberSolver(AiConst.PROOF_NUMBER_TABLE_SIZE_MB);
+
+    private ProofNumber() {
+    }
+
+    /**
+     * Entrance of proof-number search
+     *
+     * @param chess The chessboard
+     * @return Coordinates of the next move
+     */
+    public static int[] startProofNumberSearch(int[][] chess) {
+        if (isOpening(chess)) {
+            return new int[] {7, 7, aiPieceType};
+        }
+        int result = solver.solve(chess, aiPieceType, AiConst.PROOF_NUMBER_NODE_LIMIT);
+        System.out.println("proof number: " + solver.getProofNumber() + " disproof number: "
+            + solver.getDisproofNumber() + " nodes: " + solver.getNodes());
+        int[] line = solver.getPrincipalLine();
+        //a proof without a line is of no use to choose the move
+        if (result != ProofNumberSolver.PROVEN || line.length == 0) {
+            String status = result == ProofNumberSolver.PROVEN ? "proven without a line" :
+                result == ProofNumberSolver.DISPROVEN ? "disproven" : "unknown";
+            Background.addMessage("Proof-number search " + status + ", nodes: " + solver.getNodes());
+            return MinimaxAbp.startAlphaBetaPruningWithSort(chess);
+        }
+        Background.addMessage("---------------------------------");
+        Background.addMessage("Win proven, " + (line.length + 1) / 2 + " moves to win");
+        return new int[] {BitBoard.cellX(line[0]), BitBoard.cellY(line[0]), aiPieceType};
+    }
+
+    /**
+     * Proves or disproves a win of the player to move, black is to move if both players have the same number of
+     * stones
+     *
+     * @param chess     The chessboard, e.g. {@code GameController.chess}
+     * @param nodeLimit Maximum number of nodes to expand
+     * @return {@link ProofNumberSolver#PROVEN}, {@link ProofNumberSolver#DISPROVEN} or
+     *     {@link ProofNumberSolver#UNKNOWN}
+     */
+    public static int analyse(int[][] chess, long nodeLimit) {
+        int stoneSum = 0;
+        for (int[] row : chess) {
+            for (int tile : row) {
+                stoneSum += tile;
+            }
+        }
+        return solver.solve(chess, stoneSum == 0 ? 1 : -1, nodeLimit);
+    }
+
+    /**
+     * Returns the proof number of the last search, 0 if the win is proven
+     *
+     * @return The proof number
+     */
+    public static int getProofNumber() {
+        return solver.getProofNumber();
+    }
+
+    /**
+     * Returns the disproof number of the last search, 0 if the win is disproven
+     *
+     * @return The disproof number
+     */
+    public static int getDisproofNumber() {
+        return solver.getDisproofNumber();
+    }
+
+    /**
+     * Returns the principal line of the last search
+     *
+     * @return Coordinates of the moves with the format of [[x, y, pieceType], ...]
+     */
+    public static int[][] getPrincipalLine() {
+        int[] line = solver.getPrincipalLine();
+        int attacker = solver.getAttacker();
+        int[][] moves = new int[line.length][];
+        for (int i = 0; i < line.length; i++) {
+            moves[i] = new int[] {BitBoard.cellX(line[i]), BitBoard.cellY(line[i]), i % 2 == 0 ? attacker :
+                attacker * -1};
+        }
+        return moves;
+    }
+
+    /**
+     * Replaces the solver with one whose node table is empty and of the given size
+     *
+     * @param sizeInMb Size of the table in megabytes
+     */
+    public static void setTableSize(int sizeInMb) {
+        solver = new ProofNumberSolver(sizeInMb);
+    }
+}
@@ -2,30 +2,41 @@ package ai;
 
 import ai.constant.AiConst;
 import ai.utility.AiUtils;
+import ai.utility.BitBoard;
 import ai.utility.HeuristicChessboardUtils;
-import game.GameController;
+import ai.utility.MoveList;
+import ai.utility.SearchPosition;
+import ai.utility.TranspositionTable;
+import ai.utility.ZobristKeys;
 import gui.Background;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 /**
  * This class is an ai agent uses transposition table technique
  *
  * @author Cirun Zhang
- * @version 1.1
+ * @version 1.3
  */
 
 public class Transposition extends Agent {
 
     /**
-     * Transposition table implemented by a hash map
+     * Returned by {@link #probeTable} if the stored result does not decide the node
      */
-    private static Map<Integer, TranspositionNode> transpositionTable = new HashMap<>(100000);
+    private static final int NO_CUTOFF = Integer.MIN_VALUE;
+
+    /**
+     * Transposition table with a fixed size, entries are kept across searches and games
+     */
+    private static TranspositionTable transpositionTable =
+        new TranspositionTable(AiConst.TRANSPOSITION_TABLE_SIZE_MB);
 
     private static int usage;
 
+    /**
+     * Best move found at the root of the last transposition search
+     */
+    private static Node bestRootMove;
+
     private Transposition() {
     }
 
@@ -40,11 +51,16 @@ public class Transposition extends Agent {
         if (isOpening(chess)) {
             return new int[] {7, 7, aiPieceType};
         } else {
-            //instantiate root node with preset x and y to the center of the chessboard(good for pruning)
-            Node root = new Node(-1, -1, -1, chess);
-            Node bestMove;
-
-            bestMove = transpositionMaximizer(root, 1, aiPieceType, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            int[] vcfMove = findVcfMove(chess);
+            if (vcfMove != null) {
+                return vcfMove;
+            }
+            SearchPosition position = new SearchPosition(chess);
+            transpositionTable.newSearch();
+            Node bestMove = searchWithinBudget((alpha, beta) -> {
+                transpositionMaximizer(position, 1, aiPieceType, alpha, beta);
+                return bestRootMove;
+            });
 
             int[] result = bestMove.getCoordinates();
             Background.addMessage(
@@ -56,222 +72,269 @@ public class Transposition extends Agent {
         }
     }
 
+    /**
+     * Replaces the transposition table with an empty table of the given size
+     *
+     * @param sizeInMb Size of the table in megabytes
+     */
+    public static void setTableSize(int sizeInMb) {
+        transpositionTable = new TranspositionTable(sizeInMb);
+    }
+
     /**
      * Maximizer of alpha beta pruning applied transposition search,
-     * each node will be recorded in the transposition table.
+     * each node will be recorded in the transposition table. Moves are played on the position in place, the best
+     * move of the root is stored in {@link #bestRootMove}
      *
-     * @param root      Current game node
+     * @param position  Current search position
      * @param depth     Current depth of the node in the search tree
      * @param pieceType Type of pieces
      * @param alpha     Alpha value for Max node
      * @param beta      Beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node transpositionMaximizer(Node root, int depth, int pieceType, int alpha, int beta) {
+    private static int transpositionMaximizer(SearchPosition position, int depth, int pieceType, int alpha,
+        int beta) {
+        if (isOutOfBudget()) {
+            return 0;
+        }
         //base case
         if (depth >= maximumSearchDepth) {
-            count++;
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            count.increment();
+            return HeuristicChessboardUtils.heuristic(position);
         }
 
-        int[][] chess = root.getChess();
-
-        //calculate the checksum for the chessboard
-        int checkSum = getCheckSum(chess);
+        //the checksum of the node is maintained by the position
+        long checkSum = position.getHash() ^ ZobristKeys.turnKey(pieceType);
+        int remainingDepth = maximumSearchDepth - depth;
+
+        /*If the stored result is searched at least as deep as this node and its bound decides the node, stop abp
+        and use the score directly. The root always searches to find its best move*/
+        long entry = transpositionTable.probe(checkSum);
+        if (depth > 1) {
+            int storedScore = probeTable(entry, remainingDepth, alpha, beta, true);
+            if (storedScore != NO_CUTOFF) {
+                usage++;
+                return storedScore;
+            }
+        }
 
         int bestScore = Integer.MIN_VALUE;
-        Node bestChild = null;
-
-        List<int[]> moves = AiUtils.moveGeneratorWithHeuristicSort(chess, 24);
+        int bestX = -1;
+        int bestY = -1;
+        int originalAlpha = alpha;
+        int hashMove = hashMoveOf(position, entry);
+        MoveList moves = null;
 
         //terminal check
         if (depth == 1) {
-            Node n = MinimaxAbp.terminalCheck(chess, moves, pieceType);
+            moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
+            Node n = MinimaxAbp.terminalCheck(position, moves, pieceType);
             if (n != null) {
-                return n;
+                bestRootMove = n;
+                return n.getScore();
             }
         }
 
-        /*If checksum is found in transposition table, and current depth is deeper than or equals to the
-        node in the transposition table, and their minMax properties are the same, stop abp and use the
-        score directly*/
-        if (transpositionTable.containsKey(checkSum) && depth >= transpositionTable.get(checkSum).getDepth()
-            && transpositionTable.get(checkSum).isMaxLayer()) {
-            usage++;
-            bestScore = transpositionTable.get(checkSum).getEvaluation();
-
+        //abp
+        count.increment();
+        //the stored best move is searched first, and the other moves are only generated if it produces no cutoff
+        if (hashMove >= 0) {
+            position.makeMove(BitBoard.cellX(hashMove), BitBoard.cellY(hashMove), pieceType);
+            bestScore = transpositionMinimizer(position, depth + 1, pieceType * -1, alpha, beta);
+            position.unmakeMove();
+            bestX = BitBoard.cellX(hashMove);
+            bestY = BitBoard.cellY(hashMove);
+            alpha = Math.max(alpha, bestScore);
+        }
+        if (hashMove >= 0 && bestScore >= beta) {
+            position.getHistory().add(pieceType, hashMove, maximumSearchDepth - depth);
         } else {
-            //abp
-            count++;
-            for (int[] move : moves) {
-                int newX = move[0];
-                int newY = move[1];
-                int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType);
-                Node child = new Node(newX, newY, -1, nextMove);
-
-                int score = transpositionMinimizer(child, depth + 1, pieceType * -1, alpha, beta).getScore();
+            if (moves == null) {
+                moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
+            }
+            for (int i = 0; i < moves.size(); i++) {
+                if (moves.getCell(i) == hashMove) {
+                    continue;
+                }
+                position.makeMove(moves.getX(i), moves.getY(i), pieceType);
+                int score = transpositionMinimizer(position, depth + 1, pieceType * -1, alpha, beta);
+                position.unmakeMove();
 
                 if (score > bestScore) {
                     bestScore = score;
-                    bestChild = child;
+                    bestX = moves.getX(i);
+                    bestY = moves.getY(i);
                     alpha = score;
                 }
 
                 //beta pruning
                 if (score >= beta) {
+                    position.getHistory().add(pieceType, moves.getCell(i), maximumSearchDepth - depth);
                     break;
                 }
             }
-            //Stores the new record to the transposition table
-            transpositionTable.put(checkSum, new TranspositionNode(checkSum, bestScore, depth, true));
         }
 
-        root.setScore(bestScore);
+        //Stores the new record to the transposition table, the scores of a stopped search are incomplete
+        if (bestX >= 0 && !isSearchStopped()) {
+            storeResult(checkSum, remainingDepth, bestScore, originalAlpha, beta, BitBoard.cellIndex(bestX, bestY),
+                true);
+        }
 
         if (depth == 1) {
-            System.out.println("total nodes: " + count);
-            Background.addMessage("Total nodes: " + count);
-            count = 0;
-            return bestChild;
+            System.out.println("total nodes: " + count.sum());
+            Background.addMessage("Total nodes: " + count.sum());
+            count.reset();
+            bestRootMove = new Node(bestX, bestY, bestScore);
         }
 
-        return root;
+        return bestScore;
     }
 
     /**
      * Minimizer of alpha beta pruning with transposition search technique, each node will be hashed into the
      * transposition table
      *
-     * @param root      Current game node
+     * @param position  Current search position
      * @param depth     Current depth of the node in the search tree
      * @param pieceType Type of pieces
      * @param alpha     alpha value for Max node
      * @param beta      beta value for Min node
-     * @return The most valuable node
+     * @return Score of the node
      */
-    private static Node transpositionMinimizer(Node root, int depth, int pieceType, int alpha, int beta) {
+    private static int transpositionMinimizer(SearchPosition position, int depth, int pieceType, int alpha,
+        int beta) {
+        if (isOutOfBudget()) {
+            return 0;
+        }
         //base case
         if (depth >= maximumSearchDepth) {
-            count++;
-            root.setScore(HeuristicChessboardUtils.heuristic(root.getChess()));
-            return root;
+            count.increment();
+            return HeuristicChessboardUtils.heuristic(position);
         }
 
-        int[][] chess = root.getChess();
-        int checkSum = getCheckSum(chess);
-        int bestScore = Integer.MAX_VALUE;
-        Node bestChild = null;
+        long checkSum = position.getHash() ^ ZobristKeys.turnKey(pieceType);
+        int remainingDepth = maximumSearchDepth - depth;
 
-        List<int[]> moves = AiUtils.moveGeneratorWithHeuristicSort(chess, 24);
-        //Terminal check
-        if (depth == 1) {
-            Node n = MinimaxAbp.terminalCheck(chess, moves, pieceType);
-            if (n != null) {
-                return n;
-            }
+        //stop abp and use the stored score directly if it decides the node
+        long entry = transpositionTable.probe(checkSum);
+        int storedScore = probeTable(entry, remainingDepth, alpha, beta, false);
+        if (storedScore != NO_CUTOFF) {
+            usage++;
+            return storedScore;
         }
 
-        /*If checksum is found in transposition table, and current depth is deeper than or equals to the node
-        in the transposition table, and their minMax properties are the same, stop abp and use the
-        score directly*/
-        if (transpositionTable.containsKey(checkSum) && depth >= transpositionTable.get(checkSum).getDepth()
-            && !transpositionTable.get(checkSum).isMaxLayer()) {
-            usage++;
-            bestScore = transpositionTable.get(checkSum).getEvaluation();
+        int bestScore = Integer.MAX_VALUE;
+        int bestMove = hashMoveOf(position, entry);
+        int originalBeta = beta;
+
+        count.increment();
+        //the stored best move is searched first, and the other moves are only generated if it produces no cutoff
+        if (bestMove >= 0) {
+            position.makeMove(BitBoard.cellX(bestMove), BitBoard.cellY(bestMove), pieceType);
+            bestScore = transpositionMaximizer(position, depth + 1, pieceType * -1, alpha, beta);
+            position.unmakeMove();
+            beta = Math.min(beta, bestScore);
+        }
+        if (bestMove >= 0 && bestScore <= alpha) {
+            position.getHistory().add(pieceType, bestMove, maximumSearchDepth - depth);
         } else {
-            count++;
-            for (int[] move : moves) {
-                int newX = move[0];
-                int newY = move[1];
-                int[][] nextMove = AiUtils.nextMoveChessboard(chess, newX, newY, pieceType);
-                Node child = new Node(newX, newY, -1, nextMove);
-
-                int score = transpositionMaximizer(child, depth + 1, pieceType * -1, alpha, beta).getScore();
+            int hashMove = bestMove;
+            MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
+            for (int i = 0; i < moves.size(); i++) {
+                if (moves.getCell(i) == hashMove) {
+                    continue;
+                }
+                position.makeMove(moves.getX(i), moves.getY(i), pieceType);
+                int score = transpositionMaximizer(position, depth + 1, pieceType * -1, alpha, beta);
+                position.unmakeMove();
+
                 if (score < bestScore) {
                     bestScore = score;
-                    bestChild = child;
+                    bestMove = moves.getCell(i);
                     beta = score;
                 }
                 //alpha pruning
                 if (score <= alpha) {
+                    position.getHistory().add(pieceType, moves.getCell(i), maximumSearchDepth - depth);
                     break;
                 }
             }
-            //Stores the new record to the transposition table
-            transpositionTable.put(checkSum, new TranspositionNode(checkSum, bestScore, depth, false));
         }
 
-        root.setScore(bestScore);
-
-        if (depth == 1) {
-            System.out.println("total nodes: " + count);
-            count = 0;
-            return bestChild;
+        //Stores the new record to the transposition table, the scores of a stopped search are incomplete
+        if (bestMove >= 0 && !isSearchStopped()) {
+            storeResult(checkSum, remainingDepth, bestScore, alpha, originalBeta, bestMove, false);
         }
 
-        return root;
+        return bestScore;
     }
 
     /**
-     * Calculates the checksum of the chessboard
+     * Decides a node by its entry in the transposition table
      *
-     * @param chess 2-dimensional array represents the chessboard
-     * @return Hash value
+     * @param entry          Entry of the node, or 0 if the node is not stored
+     * @param remainingDepth Depth still to be searched below the node
+     * @param alpha          Alpha value of the node
+     * @param beta           Beta value of the node
+     * @param isMaxLayer     Whether the AI is to move at the node
+     * @return The stored score if it is searched deep enough and decides the node, otherwise {@link #NO_CUTOFF}
      */
-    public static int getCheckSum(int[][] chess) {
-        int checkSum = 0;
-        for (int i = 0; i < chess.length; i++) {
-            for (int j = 0; j < chess[0].length; j++) {
-                int pieceType = chess[i][j];
-                switch (pieceType) {
-                    case AiConst.BLACK_STONE:
-                        checkSum ^= GameController.zobrist[0][i][j];
-                        break;
-                    case AiConst.WHITE_STONE:
-                        checkSum ^= GameController.zobrist[1][i][j];
-                        break;
-                    default:
-                        break;
-                }
-            }
+    private static int probeTable(long entry, int remainingDepth, int alpha, int beta, boolean isMaxLayer) {
+        if (entry == 0 || TranspositionTable.getDepth(entry) < remainingDepth) {
+            return NO_CUTOFF;
         }
-        return checkSum;
-    }
-}
-
-/**
- * This class represents the node stored in the transposition table, each node encapsulates the checksum,
- * score, Min&Max and depth in the tree
- *
- * @author Cirun Zhang
- * @version 1.1
- */
-class TranspositionNode {
-    private int checksum, evaluation, depth;
-
-    private boolean isMaxLayer;
-
-    TranspositionNode(int checksum, int evaluation, int depth, boolean isMaxLayer) {
-        this.checksum = checksum;
-        this.evaluation = evaluation;
-        this.depth = depth;
-        this.isMaxLayer = isMaxLayer;
-    }
-
-    int getChecksum() {
-        return checksum;
-    }
-
-    int getEvaluation() {
-        return evaluation;
+        //the table stores scores of the player to move, the opponent of the AI is to move at a min layer
+        int score = isMaxLayer ? TranspositionTable.getScore(entry) : -TranspositionTable.getScore(entry);
+        int bound = isMaxLayer ? TranspositionTable.getBound(entry) :
+            TranspositionTable.flipBound(TranspositionTable.getBound(entry));
+
+        if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta) || (
+            bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+            return score;
+        }
+        return NO_CUTOFF;
     }
 
-    int getDepth() {
-        return depth;
+    /**
+     * Returns the best move stored for a node, whatever depth it was searched to
+     *
+     * @param position Current search position
+     * @param entry    Entry of the node, or 0 if the node is not stored
+     * @return Cell index of the move, or -1 if there is no move or the tile is taken after a hash collision
+     */
+    private static int hashMoveOf(SearchPosition position, long entry) {
+        int move = entry == 0 ? -1 : TranspositionTable.getBestMove(entry);
+        if (move < 0 || !position.getBoard().isEmpty(BitBoard.cellX(move), BitBoard.cellY(move))) {
+            return -1;
+        }
+        return move;
     }
 
-    boolean isMaxLayer() {
-        return isMaxLayer;
+    /**
+     * Stores the result of a node into the transposition table
+     *
+     * @param checkSum       Checksum of the node
+     * @param remainingDepth Depth searched below the node
+     * @param score          Score of the node
+     * @param alpha          Alpha value of the node before its children are searched
+     * @param beta           Beta value of the node before its children are searched
+     * @param bestMove       Cell index of the best move
+     * @param isMaxLayer     Whether the AI is to move at the node
+     */
+    private static void storeResult(long checkSum, int remainingDepth, int score, int alpha, int beta, int bestMove,
+        boolean isMaxLayer) {
+        int bound = TranspositionTable.EXACT;
+        if (score <= alpha) {
+            bound = TranspositionTable.UPPER_BOUND;
+        } else if (score >= beta) {
+            bound = TranspositionTable.LOWER_BOUND;
+        }
+        if (isMaxLayer) {
+            transpositionTable.store(checkSum, remainingDepth, score, bound, bestMove);
+        } else {
+            transpositionTable.store(checkSum, remainingDepth, -score, TranspositionTable.flipBound(bound), bestMove);
+        }
     }
 }
@@ -0,0 +1,271 @@
+package ai;
+
+import ai.utility.AiUtils;
+import ai.utility.MoveList;
+import ai.utility.SearchPosition;
+import gui.Background;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is an AI agent uses parallel alpha beta pruning with the Young Brothers Wait Concept
+ * <p>
+ * At every node the eldest brother, i.e. the first move, is searched alone. If it does not produce a cutoff, the
+ * younger brothers are searched in parallel by the thread pool, each on its own copy of the position, with a shared
+ * alpha value which is raised by every finished brother. Once a brother produces a cutoff the node is cancelled,
+ * and the searches of its other brothers and all their descendants return at the next node they visit.
+ * <p>
+ * Unlike splitting only the root, the work is split at any node deep enough, so narrow positions with a few viable
+ * root moves are searched in parallel as well.
+ * <p>
+ * The number of threads is set by {@link Agent#setThreadCount}, e.g. in the setting pane, and with one thread the
+ * search is serial. Younger brothers are searched one below the shared alpha value, so equal scores are broken by the
+ * move order as in the serial search. The moves may still differ from the serial search, because every thread keeps
+ * its own history credits, which decide the moves kept by the move generator.
+ *
+ * @author Cirun Zhang
+ * @version 1.1
+ */
+public class YoungBrothersWait extends Agent {
+    /**
+     * Bound of the search window, it can be negated without overflow
+     */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * Minimum depth searched below a node whose younger brothers are split, smaller subtrees are not worth the copy
+     * of the position
+     */
+    private static final int MIN_SPLIT_DEPTH = 2;
+
+    /**
+     * Number of nodes searched by all threads
+     */
+    private static final LongAdder nodes = new LongAdder();
+
+    /**
+     * Best move found at the root of the last search
+     */
+    private static Node bestRootMove;
+
+    private YoungBrothersWait() {
+    }
+
+    /**
+     * Starts the parallel search, it searches serially if the thread count is 1
+     *
+     * @param chess 2-dimension array represents the chessboard
+     * @return Coordinates of the best next move for the AI
+     */
+    public static int[] startYoungBrothersWaitSearch(int[][] chess) {
+        if (isOpening(chess)) {
+            return new int[] {7, 7, aiPieceType};
+        } else {
+            int[] vcfMove = findVcfMove(chess);
+            if (vcfMove != null) {
+                return vcfMove;
+            }
+            int pieceType = aiPieceType;
+            Node bestMove = searchWithinBudget((alpha, beta) -> {
+                nodes.reset();
+                SearchPosition position = new SearchPosition(chess);
+                //the search runs inside the pool, so the nested splits are forked to the same pool
+                getPool().invoke(ForkJoinTask.adapt(() -> {
+                    //the window of the agent driver may be unbounded, which is not negatable
+                    youngBrothersWaitSearch(position, 1, pieceType, Math.max(alpha, -INFINITY), beta, null);
+                }));
+                System.out.println("total nodes: " + nodes.sum());
+                Background.addMessage("Total nodes: " + nodes.sum());
+                return bestRootMove;
+            });
+
+            int[] result = bestMove.getCoordinates();
+            Background.addMessage(
+                "Computer move : (x, " + result[0] + ") (y, " + result[1] + ") score " + bestMove.getScore());
+
+            return new int[] {result[0], result[1], aiPieceType};
+        }
+    }
+
+    /**
+     * Negamax alpha beta pruning which splits the younger brothers of a node across the thread pool. The best move of
+     * the root is stored in {@link #bestRootMove}
+     *
+     * @param position   Search position owned by the calling thread
+     * @param depth      Current depth of the node
+     * @param pieceType  Identification of the player to move, 1 for black and -1 for white
+     * @param alpha      Lower bound of the window from the view of the player to move
+     * @param beta       Upper bound of the window from the view of the player to move
+     * @param splitPoint The nearest ancestor whose brothers are searched in parallel, or null
+     * @return Score of the node from the view of the player to move, meaningless if the node is cancelled
+     */
+    private static int youngBrothersWaitSearch(SearchPosition position, int depth, int pieceType, int alpha, int beta,
+        SplitPoint splitPoint) {
+        nodes.increment();
+        if (isOutOfBudget() || (splitPoint != null && splitPoint.isCancelled())) {
+            return 0;
+        }
+        //base case
+        if (depth >= maximumSearchDepth) {
+            return position.getEvaluator().getScore(pieceType);
+        }
+
+        MoveList moves = AiUtils.moveGeneratorWithHistory(position, 24, pieceType);
+
+        //detect five in row
+        if (depth == 1) {
+            Node n = terminalCheck(position, moves, pieceType);
+            if (n != null) {
+                bestRootMove = n;
+                return n.getScore();
+            }
+        }
+        if (moves.size() == 0) {
+            if (depth == 1) {
+                bestRootMove = new Node(-1, -1, -INFINITY);
+            }
+            return -INFINITY;
+        }
+
+        //the eldest brother is searched first
+        position.makeMove(moves.getX(0), moves.getY(0), pieceType);
+        int bestScore = -youngBrothersWaitSearch(position, depth + 1, pieceType * -1, -beta, -alpha, splitPoint);
+        position.unmakeMove();
+        int bestIndex = 0;
+        alpha = Math.max(alpha, bestScore);
+
+        if (alpha < beta && moves.size() > 1) {
+            if (threadCount > 1 && maximumSearchDepth - depth >= MIN_SPLIT_DEPTH) {
+                int[] result = searchYoungerBrothers(position, moves, depth, pieceType, alpha, beta, splitPoint);
+                if (result[0] > bestScore) {
+                    bestScore = result[0];
+                    bestIndex = result[1];
+                }
+            } else {
+                for (int i = 1; i < moves.size(); i++) {
+                    position.makeMove(moves.getX(i), moves.getY(i), pieceType);
+                    int score = -youngBrothersWaitSearch(position, depth + 1, pieceType * -1, -beta, -alpha,
+                        splitPoint);
+                    position.unmakeMove();
+
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestIndex = i;
+                    }
+                    alpha = Math.max(alpha, score);
+                    //beta pruning
+                    if (alpha >= beta) {
+                        position.getHistory().add(pieceType, moves.getCell(i), maximumSearchDepth - depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (depth == 1) {
+            bestRootMove = new Node(moves.getX(bestIndex), moves.getY(bestIndex), bestScore);
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Searches all moves but the first in parallel and waits for them
+     *
+     * @param position   Search position of the node, it is not modified while the brothers are searched
+     * @param moves      Generated moves of the node
+     * @param depth      Current depth of the node
+     * @param pieceType  Identification of the player to move
+     * @param alpha      Alpha value after the eldest brother is searched
+     * @param beta       Beta value of the node
+     * @param splitPoint The nearest ancestor whose brothers are searched in parallel, or null
+     * @return Best score and index of the best move among the younger brothers, with the format of [score, index]
+     */
+    private static int[] searchYoungerBrothers(SearchPosition position, MoveList moves, int depth, int pieceType,
+        int alpha, int beta, SplitPoint splitPoint) {
+        SplitPoint node = new SplitPoint(splitPoint, alpha);
+        int[][] chess = position.getChess();
+        int[] scores = new int[moves.size()];
+        boolean[] isSearched = new boolean[moves.size()];
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 1; i < moves.size(); i++) {
+            int index = i;
+            int x = moves.getX(i);
+            int y = moves.getY(i);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (node.isCancelled()) {
+                    return;
+                }
+                SearchPosition child = new SearchPosition(chess);
+                child.makeMove(x, y, pieceType);
+                /*The window is one below the shared alpha value, so a brother as good as the best one gets its exact
+                score and the tie is broken by the move order as in the serial search*/
+                int bound = node.alpha.get();
+                int score = -youngBrothersWaitSearch(child, depth + 1, pieceType * -1, -beta,
+                    bound == -INFINITY ? INFINITY : -(bound - 1), node);
+                //the score of a cancelled search is meaningless
+                if (node.isCancelled()) {
+                    return;
+                }
+                scores[index] = score;
+                isSearched[index] = true;
+                node.alpha.accumulateAndGet(score, Math::max);
+                if (score >= beta) {
+                    node.isCutoff = true;
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int bestScore = -INFINITY;
+        int bestIndex = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (isSearched[i] && scores[i] > bestScore) {
+                bestScore = scores[i];
+                bestIndex = i;
+            }
+        }
+        return new int[] {bestScore, bestIndex};
+    }
+
+    /**
+     * This class represents a node whose younger brothers are searched in parallel
+     */
+    private static class SplitPoint {
+        private final SplitPoint parent;
+
+        /**
+         * Alpha value shared by the brothers
+         */
+        private final AtomicInteger alpha;
+
+        /**
+         * Whether a brother has produced a cutoff
+         */
+        private volatile boolean isCutoff;
+
+        SplitPoint(SplitPoint parent, int alpha) {
+            this.parent = parent;
+            this.alpha = new AtomicInteger(alpha);
+        }
+
+        /**
+         * Determines whether this node or any split ancestor is cut off
+         *
+         * @return A boolean indicates whether the searches below the node can stop
+         */
+        boolean isCancelled() {
+            for (SplitPoint p = this; p != null; p = p.parent) {
+                if (p.isCutoff) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -68,6 +68,78 @@ public class AiConst {
      */
     public static final int WINDOW_SIZE_ASPIRATION = 100;
 
+    /**
+     * Default size of the transposition table in megabytes
+     */
+    public static final int TRANSPOSITION_TABLE_SIZE_MB = 32;
+
+    /**
+     * Deepest search depth of iterative deepening, in plies
+     */
+    public static final int MAXIMUM_ITERATIVE_DEPTH = 20;
+
+    /**
+     * Maximum move ordering bonus of the history heuristic, it is less than the score gap between a two and a three,
+     * so the history only reorders moves of similar heuristic scores
+     */
+    public static final int HISTORY_ORDERING_WEIGHT = 400;
+
+    /**
+     * Late move reductions, the number of moves of a node always searched to full depth
+     */
+    public static final int LMR_FULL_DEPTH_MOVES = 4;
+
+    /**
+     * Minimum depth searched below a node for its late moves to be reduced
+     */
+    public static final int LMR_MIN_DEPTH = 3;
+
+    /**
+     * Late moves from this index on are reduced by two plies instead of one
+     */
+    public static final int LMR_DEEP_REDUCTION_MOVES = 10;
+
+    /**
+     * Maximum number of fours of the attacker in a victory by continuous fours
+     */
+    public static final int VCF_MAXIMUM_DEPTH = 20;
+
+    /**
+     * Maximum number of nodes of one VCF search, the search fails once it is exceeded
+     */
+    public static final int VCF_NODE_LIMIT = 100000;
+
+    /**
+     * Maximum number of threats of the attacker before the final victory by continuous fours of a VCT
+     */
+    public static final int VCT_MAXIMUM_DEPTH = 10;
+
+    /**
+     * Time limit of a VCT search in milliseconds
+     */
+    public static final int VCT_TIME_LIMIT = 1000;
+
+    /**
+     * Maximum number of threats of the attacker before the final victory by continuous fours of a proof-number
+     * search, a deeper node is disproven
+     */
+    public static final int PROOF_NUMBER_MAXIMUM_DEPTH = 10;
+
+    /**
+     * Maximum number of nodes of one proof-number search of the proof-number agent
+     */
+    public static final int PROOF_NUMBER_NODE_LIMIT = 20000;
+
+    /**
+     * Default size of the node table of the proof-number search in megabytes
+     */
+    public static final int PROOF_NUMBER_TABLE_SIZE_MB = 16;
+
+    /**
+     * Maximum number of plies of the quiescence search below a leaf of alpha beta pruning
+     */
+    public static final int QUIESCENCE_MAXIMUM_DEPTH = 8;
+
     /**
      * Threat Direction
      */
@@ -104,6 +176,15 @@ public class AiConst {
 
     public static final String POTENTIAL_THREAT_I = "0t0110";
 
+    //The split threes whose gain square is next to the gap
+    public static final String POTENTIAL_THREAT_J = "010t10";
+
+    public static final String POTENTIAL_THREAT_K = "01t010";
+
+    public static final String POTENTIAL_THREAT_L = "0101t0";
+
+    public static final String POTENTIAL_THREAT_M = "0t1010";
+
     /**
      * Dependent Threats
      */
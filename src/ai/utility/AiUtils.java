@@ -1,6 +1,7 @@
 package ai.utility;
 
 import ai.GreedyBestFirst;
+import ai.constant.AiConst;
 import gui.constant.GuiConst;
 
 import java.util.ArrayList;
@@ -112,6 +113,168 @@ public class AiUtils {
         }
     }
 
+    /**
+     * Generates the candidate moves of a search position and selects the best n of them by a heuristic
+     * function{@see GreedyBestFirst}. Only the tiles of the {@link CandidateFrontier} are scored, all empty tiles are
+     * scored if the chessboard has no stone. Scores are read from the {@link MoveScoreCache} of the position. The
+     * order is the same as a stable sort of all empty tiles by descending score.
+     *
+     * @param position The search position
+     * @param n        Number of required moves
+     * @return         The move list of the current ply holds the best n moves, from the best to the worst
+     */
+    public static MoveList moveGeneratorWithHeuristicSort(SearchPosition position, int n) {
+        return generateMoves(position, n, AiConst.EMPTY_STONE);
+    }
+
+    /**
+     * Generates the candidate moves of a search position like {@link #moveGeneratorWithHeuristicSort(SearchPosition,
+     * int)}, the heuristic score of every move is raised by its bonus in the {@link HistoryTable} of the position
+     *
+     * @param position  The search position
+     * @param n         Number of required moves
+     * @param pieceType Type of the piece to move, 1 for black and -1 for white
+     * @return          The move list of the current ply holds the best n moves, from the best to the worst
+     */
+    public static MoveList moveGeneratorWithHistory(SearchPosition position, int n, int pieceType) {
+        return generateMoves(position, n, pieceType);
+    }
+
+    /**
+     * Generates and sorts the candidate moves of a search position
+     *
+     * @param position  The search position
+     * @param n         Number of required moves
+     * @param pieceType Type of the piece to move, or {@link AiConst#EMPTY_STONE} to ignore the history
+     * @return          The move list of the current ply holds the best n moves, from the best to the worst
+     */
+    private static MoveList generateMoves(SearchPosition position, int n, int pieceType) {
+        CandidateFrontier frontier = position.getFrontier();
+        HistoryTable history = pieceType == AiConst.EMPTY_STONE ? null : position.getHistory();
+        MoveScoreCache moveScores = position.getMoveScores();
+        MoveList moves = position.getMoveList();
+        moves.clear(n);
+
+        if (frontier.isEmpty()) {
+            int[][] chess = position.getChess();
+            for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+                int x = BitBoard.cellX(cell);
+                int y = BitBoard.cellY(cell);
+                if (chess[x][y] == 0) {
+                    int score = moveScores.getScore(x, y);
+                    moves.offer(cell, score + (history == null ? 0 : history.getBonus(pieceType, cell)));
+                }
+            }
+        } else {
+            for (int word = 0; word < 4; word++) {
+                for (long bits = frontier.getCandidates(word); bits != 0; bits &= bits - 1) {
+                    int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    int score = moveScores.getScore(BitBoard.cellX(cell), BitBoard.cellY(cell));
+                    moves.offer(cell, score + (history == null ? 0 : history.getBonus(pieceType, cell)));
+                }
+            }
+        }
+
+        moves.sort();
+        return moves;
+    }
+
+    /**
+     * Determines whether a move makes or blocks a threat: the stone makes a three, a four or five of the player, or
+     * takes the tile on which the opponent makes a four or five, i.e. it blocks a three or a four of the opponent
+     *
+     * @param board     The bitboard
+     * @param cell      Cell index of the empty tile
+     * @param pieceType Type of the piece of the player to move
+     * @return A boolean indicates whether the move makes or blocks a threat
+     */
+    public static boolean isThreatMove(BitBoard board, int cell, int pieceType) {
+        int fourClasses = PatternTable.FIVE_CLASS | PatternTable.FOUR_DOUBLE_EMPTY_CLASS
+            | PatternTable.FOUR_SINGLE_EMPTY_CLASS;
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            int line = BitBoard.lineOf(direction, cell);
+            if (isNewPattern(board, line, cell, pieceType, fourClasses | PatternTable.THREE_CLASS)
+                || isNewPattern(board, line, cell, pieceType * -1, fourClasses)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether a stone of a player on an empty tile makes a pattern of the given classes on a line
+     */
+    private static boolean isNewPattern(BitBoard board, int line, int cell, int pieceType, int classes) {
+        int length = BitBoard.lineLength(line);
+        int ally = board.getLine(pieceType, line);
+        int opponent = board.getLine(pieceType * -1, line);
+        int stone = 1 << BitBoard.positionOf(BitBoard.lineDirection(line), cell);
+        int before = PatternTable.CHESSBOARD_PATTERNS.match(PatternTable.encodeLine(ally, opponent), length);
+        int after = PatternTable.CHESSBOARD_PATTERNS.match(PatternTable.encodeLine(ally | stone, opponent), length);
+        return (after & ~before & classes) != 0;
+    }
+
+    /**
+     * Collects the empty tiles on which a player makes five within some lines
+     *
+     * @param board     The bitboard
+     * @param pieceType Type of the piece of the player
+     * @param lines     Indexes of the lines, see {@link BitBoard#lineOf}
+     * @param lineNum   Number of the lines
+     * @param points    Array receives the distinct cell indexes of the tiles, with space for every empty tile
+     * @return Number of the tiles
+     */
+    public static int fivePoints(BitBoard board, int pieceType, int[] lines, int lineNum, int[] points) {
+        return windowPoints(board, pieceType, 4, lines, lineNum, points);
+    }
+
+    /**
+     * Collects the empty tiles on which a player makes a four within some lines, i.e. a stone after which the player
+     * makes five on the next move
+     *
+     * @param board     The bitboard
+     * @param pieceType Type of the piece of the player
+     * @param lines     Indexes of the lines, see {@link BitBoard#lineOf}
+     * @param lineNum   Number of the lines
+     * @param points    Array receives the distinct cell indexes of the tiles, with space for every empty tile
+     * @return Number of the tiles
+     */
+    public static int fourPoints(BitBoard board, int pieceType, int[] lines, int lineNum, int[] points) {
+        return windowPoints(board, pieceType, 3, lines, lineNum, points);
+    }
+
+    /**
+     * Collects the empty tiles of every window of five tiles of the lines which holds a number of stones of a player
+     * and none of the opponent
+     */
+    private static int windowPoints(BitBoard board, int pieceType, int stoneNum, int[] lines, int lineNum,
+        int[] points) {
+        int pointNum = 0;
+        for (int i = 0; i < lineNum; i++) {
+            int line = lines[i];
+            int ally = board.getLine(pieceType, line);
+            if (Integer.bitCount(ally) < stoneNum) {
+                continue;
+            }
+            int opponent = board.getLine(pieceType * -1, line);
+            int[] step = BitBoard.DIRECTION_STEPS[BitBoard.lineDirection(line)];
+            int cellStep = step[0] * BitBoard.SIZE + step[1];
+            for (int start = 0; start <= BitBoard.lineLength(line) - 5; start++) {
+                int window = 0x1F << start;
+                if ((opponent & window) != 0 || Integer.bitCount(ally & window) != stoneNum) {
+                    continue;
+                }
+                for (int empty = window & ~ally; empty != 0; empty &= empty - 1) {
+                    int point = BitBoard.lineStart(line) + Integer.numberOfTrailingZeros(empty) * cellStep;
+                    if (!VcfSolver.contains(points, pointNum, point)) {
+                        points[pointNum++] = point;
+                    }
+                }
+            }
+        }
+        return pointNum;
+    }
+
     public static double safeDivide(double a, double b) {
         if (b == 0 && a >= 0) {
             return Double.POSITIVE_INFINITY;
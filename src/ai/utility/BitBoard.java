@@ -0,0 +1,389 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+import gui.constant.GuiConst;
+
+/**
+ * This class is a packed representation of the chessboard.
+ * <p>
+ * Stones are kept twice: once as a 225-bit set per colour (cell index = x * 15 + y), and once as a bit mask per
+ * colour for every line of the four directions, where bit i of a line mask is the i-th cell of that line. The line
+ * masks make pattern scanning and five-in-line detection a few shifts instead of a walk over the 2-dimensional
+ * array.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class BitBoard {
+    /**
+     * Number of tiles in one row of the chessboard
+     */
+    public static final int SIZE = GuiConst.TILE_NUM_PER_ROW;
+
+    /**
+     * Number of tiles of the chessboard
+     */
+    public static final int CELL_NUM = SIZE * SIZE;
+
+    /**
+     * Directions of lines, vertical walks along y, horizontal along x, diagonal along (x + 1, y + 1) and
+     * anti-diagonal along (x + 1, y - 1)
+     */
+    public static final int VERTICAL = 0;
+
+    public static final int HORIZONTAL = 1;
+
+    public static final int DIAGONAL = 2;
+
+    public static final int ANTI_DIAGONAL = 3;
+
+    public static final int DIRECTION_NUM = 4;
+
+    /**
+     * Steps of each direction with the format of [direction][dx, dy]
+     */
+    public static final int[][] DIRECTION_STEPS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    /**
+     * Number of lines in each direction
+     */
+    public static final int[] LINE_NUM = {SIZE, SIZE, 2 * SIZE - 1, 2 * SIZE - 1};
+
+    /**
+     * Total number of lines of all directions
+     */
+    public static final int TOTAL_LINE_NUM = 2 * SIZE + 2 * (2 * SIZE - 1);
+
+    /**
+     * Offset of the first line of each direction in the global line index
+     */
+    private static final int[] LINE_OFFSET = {0, SIZE, 2 * SIZE, 2 * SIZE + 2 * SIZE - 1};
+
+    /**
+     * Global line index of each cell in each direction, with the format of [direction][cell]
+     */
+    private static final int[][] LINE_OF_CELL = new int[DIRECTION_NUM][CELL_NUM];
+
+    /**
+     * Position of each cell inside its line in each direction, with the format of [direction][cell]
+     */
+    private static final int[][] POSITION_OF_CELL = new int[DIRECTION_NUM][CELL_NUM];
+
+    /**
+     * Length of each line, indexed by the global line index
+     */
+    private static final int[] LINE_LENGTH = new int[TOTAL_LINE_NUM];
+
+    /**
+     * First cell of each line, indexed by the global line index
+     */
+    private static final int[] LINE_START = new int[TOTAL_LINE_NUM];
+
+    static {
+        for (int direction = 0; direction < DIRECTION_NUM; direction++) {
+            int dx = DIRECTION_STEPS[direction][0];
+            int dy = DIRECTION_STEPS[direction][1];
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < SIZE; y++) {
+                    //a cell starts a line when the previous cell of the direction is outside the chessboard
+                    if (isInside(x - dx, y - dy)) {
+                        continue;
+                    }
+                    int line = LINE_OFFSET[direction] + localLineIndex(direction, x, y);
+                    LINE_START[line] = cellIndex(x, y);
+                    int position = 0;
+                    for (int i = x, j = y; isInside(i, j); i += dx, j += dy) {
+                        LINE_OF_CELL[direction][cellIndex(i, j)] = line;
+                        POSITION_OF_CELL[direction][cellIndex(i, j)] = position++;
+                    }
+                    LINE_LENGTH[line] = position;
+                }
+            }
+        }
+    }
+
+    /**
+     * 225-bit sets of black and white stones
+     */
+    private final long[] blackStones = new long[4];
+
+    private final long[] whiteStones = new long[4];
+
+    /**
+     * Line masks of black and white stones, indexed by the global line index
+     */
+    private final int[] blackLines = new int[TOTAL_LINE_NUM];
+
+    private final int[] whiteLines = new int[TOTAL_LINE_NUM];
+
+    /**
+     * Number of stones on the chessboard
+     */
+    private int stoneCount;
+
+    public BitBoard() {
+    }
+
+    /**
+     * Converts a 2-dimensional chessboard into a bitboard
+     *
+     * @param chess 2-dimensional array represents the chessboard, e.g. {@code GameController.chess}
+     * @return The bitboard holds the same stones
+     */
+    public static BitBoard fromChessboard(int[][] chess) {
+        BitBoard board = new BitBoard();
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                if (chess[i][j] != AiConst.EMPTY_STONE) {
+                    board.set(i, j, chess[i][j]);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Converts the bitboard into a new 2-dimensional chessboard
+     *
+     * @return 2-dimensional array represents the chessboard
+     */
+    public int[][] toChessboard() {
+        int[][] chess = new int[SIZE][SIZE];
+        copyTo(chess);
+        return chess;
+    }
+
+    /**
+     * Writes the stones of the bitboard into an existing 2-dimensional chessboard
+     *
+     * @param chess 2-dimensional array to be overwritten
+     */
+    public void copyTo(int[][] chess) {
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                chess[i][j] = get(i, j);
+            }
+        }
+    }
+
+    /**
+     * Returns a deep copy of the bitboard
+     *
+     * @return Copy of the bitboard
+     */
+    public BitBoard copy() {
+        BitBoard board = new BitBoard();
+        System.arraycopy(blackStones, 0, board.blackStones, 0, blackStones.length);
+        System.arraycopy(whiteStones, 0, board.whiteStones, 0, whiteStones.length);
+        System.arraycopy(blackLines, 0, board.blackLines, 0, TOTAL_LINE_NUM);
+        System.arraycopy(whiteLines, 0, board.whiteLines, 0, TOTAL_LINE_NUM);
+        board.stoneCount = stoneCount;
+        return board;
+    }
+
+    /**
+     * Places a stone on an empty tile
+     *
+     * @param x         X coordinate of the tile
+     * @param y         Y coordinate of the tile
+     * @param pieceType Type of the piece, 1 for black and -1 for white
+     */
+    public void set(int x, int y, int pieceType) {
+        int cell = cellIndex(x, y);
+        long[] stones = pieceType == AiConst.BLACK_STONE ? blackStones : whiteStones;
+        int[] lines = pieceType == AiConst.BLACK_STONE ? blackLines : whiteLines;
+        stones[cell >>> 6] |= 1L << cell;
+        for (int direction = 0; direction < DIRECTION_NUM; direction++) {
+            lines[LINE_OF_CELL[direction][cell]] |= 1 << POSITION_OF_CELL[direction][cell];
+        }
+        stoneCount++;
+    }
+
+    /**
+     * Removes the stone of a tile
+     *
+     * @param x X coordinate of the tile
+     * @param y Y coordinate of the tile
+     */
+    public void clear(int x, int y) {
+        int cell = cellIndex(x, y);
+        int pieceType = get(x, y);
+        if (pieceType == AiConst.EMPTY_STONE) {
+            return;
+        }
+        long[] stones = pieceType == AiConst.BLACK_STONE ? blackStones : whiteStones;
+        int[] lines = pieceType == AiConst.BLACK_STONE ? blackLines : whiteLines;
+        stones[cell >>> 6] &= ~(1L << cell);
+        for (int direction = 0; direction < DIRECTION_NUM; direction++) {
+            lines[LINE_OF_CELL[direction][cell]] &= ~(1 << POSITION_OF_CELL[direction][cell]);
+        }
+        stoneCount--;
+    }
+
+    /**
+     * Returns the piece on a tile
+     *
+     * @param x X coordinate of the tile
+     * @param y Y coordinate of the tile
+     * @return 1 for black, -1 for white and 0 for empty
+     */
+    public int get(int x, int y) {
+        int cell = cellIndex(x, y);
+        long bit = 1L << cell;
+        if ((blackStones[cell >>> 6] & bit) != 0) {
+            return AiConst.BLACK_STONE;
+        }
+        if ((whiteStones[cell >>> 6] & bit) != 0) {
+            return AiConst.WHITE_STONE;
+        }
+        return AiConst.EMPTY_STONE;
+    }
+
+    public boolean isEmpty(int x, int y) {
+        int cell = cellIndex(x, y);
+        return ((blackStones[cell >>> 6] | whiteStones[cell >>> 6]) & (1L << cell)) == 0;
+    }
+
+    public int getStoneCount() {
+        return stoneCount;
+    }
+
+    /**
+     * Returns the 64-bit word of the stone set of a colour
+     *
+     * @param pieceType Type of the piece, 1 for black and -1 for white
+     * @param word      Index of the word, from 0 to 3
+     * @return Bits of the stones in that word
+     */
+    public long getStones(int pieceType, int word) {
+        return pieceType == AiConst.BLACK_STONE ? blackStones[word] : whiteStones[word];
+    }
+
+    /**
+     * Returns the line mask of a colour
+     *
+     * @param pieceType Type of the piece, 1 for black and -1 for white
+     * @param line      Global line index
+     * @return Bit i is set if the i-th cell of the line holds a stone of that colour
+     */
+    public int getLine(int pieceType, int line) {
+        return pieceType == AiConst.BLACK_STONE ? blackLines[line] : whiteLines[line];
+    }
+
+    /**
+     * Determines whether the stone on a tile is part of five in line
+     *
+     * @param x X coordinate of the stone
+     * @param y Y coordinate of the stone
+     * @return A boolean indicates whether five stones are in one line
+     */
+    public boolean isFiveInLine(int x, int y) {
+        int pieceType = get(x, y);
+        if (pieceType == AiConst.EMPTY_STONE) {
+            return false;
+        }
+        int cell = cellIndex(x, y);
+        for (int direction = 0; direction < DIRECTION_NUM; direction++) {
+            int mask = getLine(pieceType, LINE_OF_CELL[direction][cell]);
+            //bit i of fives is set if five stones start at position i, only the starts covering the stone count
+            int fives = mask & (mask >>> 1) & (mask >>> 2) & (mask >>> 3) & (mask >>> 4);
+            if ((fives & ((0x1F << POSITION_OF_CELL[direction][cell]) >>> 4)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the cell index of a tile
+     *
+     * @param x X coordinate of the tile
+     * @param y Y coordinate of the tile
+     * @return Cell index
+     */
+    public static int cellIndex(int x, int y) {
+        return x * SIZE + y;
+    }
+
+    public static int cellX(int cell) {
+        return cell / SIZE;
+    }
+
+    public static int cellY(int cell) {
+        return cell % SIZE;
+    }
+
+    public static boolean isInside(int x, int y) {
+        return x >= 0 && x < SIZE && y >= 0 && y < SIZE;
+    }
+
+    /**
+     * Returns the global index of the line passes through a cell
+     *
+     * @param direction Direction of the line
+     * @param cell      Cell index
+     * @return Global line index
+     */
+    public static int lineOf(int direction, int cell) {
+        return LINE_OF_CELL[direction][cell];
+    }
+
+    /**
+     * Returns the position of a cell inside its line
+     *
+     * @param direction Direction of the line
+     * @param cell      Cell index
+     * @return Position from the first cell of the line
+     */
+    public static int positionOf(int direction, int cell) {
+        return POSITION_OF_CELL[direction][cell];
+    }
+
+    public static int lineLength(int line) {
+        return LINE_LENGTH[line];
+    }
+
+    public static int lineStart(int line) {
+        return LINE_START[line];
+    }
+
+    /**
+     * Returns the global index of the first line of a direction
+     *
+     * @param direction Direction of the lines
+     * @return Global line index
+     */
+    public static int lineOffset(int direction) {
+        return LINE_OFFSET[direction];
+    }
+
+    /**
+     * Returns the direction of a line
+     *
+     * @param line Global line index
+     * @return Direction of the line
+     */
+    public static int lineDirection(int line) {
+        int direction = DIRECTION_NUM - 1;
+        while (line < LINE_OFFSET[direction]) {
+            direction--;
+        }
+        return direction;
+    }
+
+    /**
+     * Returns the index of the line passes through a tile among the lines of the same direction
+     */
+    private static int localLineIndex(int direction, int x, int y) {
+        switch (direction) {
+            case VERTICAL:
+                return x;
+            case HORIZONTAL:
+                return y;
+            case DIAGONAL:
+                return x - y + SIZE - 1;
+            default:
+                return x + y;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ai.utility;
+
+import java.util.Arrays;
+
+/**
+ * This class maintains the candidate moves of a bitboard incrementally.
+ * <p>
+ * A candidate is an empty tile within {@link #DISTANCE} tiles of a stone in any direction. For every tile the
+ * number of stones around it is counted, so placing or removing a stone only touches the 5 * 5 square around it.
+ * Candidates are kept as a 225-bit set, which is iterated in ascending cell order, the same order as a scan of the
+ * 2-dimensional chessboard.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class CandidateFrontier {
+    /**
+     * Maximum distance from a candidate to its nearest stone
+     */
+    public static final int DISTANCE = 2;
+
+    /**
+     * Cells within {@link #DISTANCE} of each cell, the cell itself excluded
+     */
+    private static final int[][] NEIGHBOURS = new int[BitBoard.CELL_NUM][];
+
+    static {
+        int[] buffer = new int[(2 * DISTANCE + 1) * (2 * DISTANCE + 1)];
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            int x = BitBoard.cellX(cell);
+            int y = BitBoard.cellY(cell);
+            int count = 0;
+            for (int i = x - DISTANCE; i <= x + DISTANCE; i++) {
+                for (int j = y - DISTANCE; j <= y + DISTANCE; j++) {
+                    if (BitBoard.isInside(i, j) && (i != x || j != y)) {
+                        buffer[count++] = BitBoard.cellIndex(i, j);
+                    }
+                }
+            }
+            NEIGHBOURS[cell] = Arrays.copyOf(buffer, count);
+        }
+    }
+
+    private final BitBoard board;
+
+    /**
+     * Number of stones within {@link #DISTANCE} of each cell
+     */
+    private final int[] stonesAround = new int[BitBoard.CELL_NUM];
+
+    /**
+     * 225-bit set of the candidates
+     */
+    private final long[] candidates = new long[4];
+
+    /**
+     * Creates the frontier of the stones of a bitboard, every later change of the bitboard must be reported
+     * through {@link #placeStone} and {@link #removeStone}
+     *
+     * @param board The bitboard
+     */
+    public CandidateFrontier(BitBoard board) {
+        this.board = board;
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if (!board.isEmpty(BitBoard.cellX(cell), BitBoard.cellY(cell))) {
+                for (int neighbour : NEIGHBOURS[cell]) {
+                    stonesAround[neighbour]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if (stonesAround[cell] > 0 && board.isEmpty(BitBoard.cellX(cell), BitBoard.cellY(cell))) {
+                candidates[cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+
+    /**
+     * Reports that a stone is placed, must be called after the bitboard is updated
+     *
+     * @param x X coordinate of the stone
+     * @param y Y coordinate of the stone
+     */
+    public void placeStone(int x, int y) {
+        int cell = BitBoard.cellIndex(x, y);
+        candidates[cell >>> 6] &= ~(1L << cell);
+        for (int neighbour : NEIGHBOURS[cell]) {
+            if (stonesAround[neighbour]++ == 0 && isEmpty(neighbour)) {
+                candidates[neighbour >>> 6] |= 1L << neighbour;
+            }
+        }
+    }
+
+    /**
+     * Reports that a stone is removed, must be called after the bitboard is updated
+     *
+     * @param x X coordinate of the stone
+     * @param y Y coordinate of the stone
+     */
+    public void removeStone(int x, int y) {
+        int cell = BitBoard.cellIndex(x, y);
+        for (int neighbour : NEIGHBOURS[cell]) {
+            if (--stonesAround[neighbour] == 0) {
+                candidates[neighbour >>> 6] &= ~(1L << neighbour);
+            }
+        }
+        if (stonesAround[cell] > 0) {
+            candidates[cell >>> 6] |= 1L << cell;
+        }
+    }
+
+    /**
+     * Returns the 64-bit word of the candidate set
+     *
+     * @param word Index of the word, from 0 to 3
+     * @return Bits of the candidates in that word
+     */
+    public long getCandidates(int word) {
+        return candidates[word];
+    }
+
+    public int size() {
+        return Long.bitCount(candidates[0]) + Long.bitCount(candidates[1]) + Long.bitCount(candidates[2])
+            + Long.bitCount(candidates[3]);
+    }
+
+    public boolean isEmpty() {
+        return (candidates[0] | candidates[1] | candidates[2] | candidates[3]) == 0;
+    }
+
+    private boolean isEmpty(int cell) {
+        return board.isEmpty(BitBoard.cellX(cell), BitBoard.cellY(cell));
+    }
+}
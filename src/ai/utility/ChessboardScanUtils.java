@@ -1,17 +1,29 @@
 package ai.utility;
 
 import ai.constant.AiConst;
-import gui.Chessboard;
-import gui.constant.GuiConst;
 
 /**
  * This class is an utility class for scanning the chessboard
+ * <p>
+ * The primitive methods never allocate and keep no state: a window is either returned in the packed format of
+ * {@link PatternTable}, or written into a char buffer owned by the caller. The String methods are kept for
+ * convenience and allocate a new String on each call.
  *
  * @author cirun zhang
- * @version 1.1
+ * @version 1.2
  */
 public class ChessboardScanUtils {
-    private static StringBuilder builder = new StringBuilder();
+    /**
+     * Number of pieces on each side of the centre of the 8 and 10 adjacent pieces windows
+     */
+    public static final int RADIUS_8 = 4;
+
+    public static final int RADIUS_10 = 5;
+
+    /**
+     * Chars of the string format, indexed by the cell code of {@link PatternTable}
+     */
+    private static final char[] CELL_CHARS = {'0', '1', '2'};
 
     private ChessboardScanUtils() {
     }
@@ -26,27 +38,7 @@ public class ChessboardScanUtils {
      * @return A horizontal row of pieces in String format
      */
     public static String horizontalAdjacentPieces8(int[][] chess, int xArrayPosition, int yArrayPosition, int pieceType) {
-        StringBuilder builder = new StringBuilder();
-        //check from left to target
-        for (int i = xArrayPosition - 4; i < xArrayPosition; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[i][yArrayPosition];
-                //0 for empty, 1 for ally, 2 for opponent
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append("1");
-
-        //check from target to right
-        for (int i = xArrayPosition + 1; i < xArrayPosition + 5; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[i][yArrayPosition];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.HORIZONTAL, RADIUS_8, pieceType, '1');
     }
 
     /**
@@ -59,26 +51,7 @@ public class ChessboardScanUtils {
      * @return A vertical row of pieces in String format
      */
     public static String verticalAdjacentPieces8(int[][] chess, int xArrayPosition, int yArrayPosition, int pieceType) {
-        StringBuilder builder = new StringBuilder();
-        //check from top to target
-        for (int i = yArrayPosition - 4; i < yArrayPosition; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[xArrayPosition][i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append("1");
-
-        //check from target to bottom
-        for (int i = yArrayPosition + 1; i < yArrayPosition + 5; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[xArrayPosition][i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.VERTICAL, RADIUS_8, pieceType, '1');
     }
 
     /**
@@ -91,28 +64,7 @@ public class ChessboardScanUtils {
      * @return A diagonal row of pieces in String format
      */
     public static String diagonalAdjacentPieces8(int[][] chess, int xArrayPosition, int yArrayPosition, int pieceType) {
-        StringBuilder builder = new StringBuilder();
-        //check from left top to target
-        for (int i = 4; i > 0; i--) {
-            if (Chessboard.validateArrayIndex(xArrayPosition - i) && Chessboard
-                .validateArrayIndex(yArrayPosition - i)) {
-                int piece = chess[xArrayPosition - i][yArrayPosition - i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append("1");
-
-        //check from target to right bottom
-        for (int i = 1; i < 5; i++) {
-            if (Chessboard.validateArrayIndex(xArrayPosition + i) && Chessboard
-                .validateArrayIndex(yArrayPosition + i)) {
-                int piece = chess[xArrayPosition + i][yArrayPosition + i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.DIAGONAL, RADIUS_8, pieceType, '1');
     }
 
     /**
@@ -125,32 +77,9 @@ public class ChessboardScanUtils {
      * @return A anti-diagonal row of pieces in String format
      */
     public static String antiDiagonalAdjacentPieces8(int[][] chess, int xArrayPosition, int yArrayPosition, int pieceType) {
-        StringBuilder builder = new StringBuilder();
-        //check from right top to target
-        for (int i = 4; i > 0; i--) {
-            if (Chessboard.validateArrayIndex(xArrayPosition + i) && Chessboard
-                .validateArrayIndex(yArrayPosition - i)) {
-                int piece = chess[xArrayPosition + i][yArrayPosition - i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append("1");
-
-        //check from target to left bottom
-        for (int i = 1; i < 5; i++) {
-            if (Chessboard.validateArrayIndex(xArrayPosition - i) && Chessboard
-                .validateArrayIndex(yArrayPosition + i)) {
-                int piece = chess[xArrayPosition - i][yArrayPosition + i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.ANTI_DIAGONAL, RADIUS_8, pieceType, '1');
     }
 
-
-
     /**
      * Get the adjacent 10 vertical pieces surround by the target piece
      *
@@ -163,26 +92,7 @@ public class ChessboardScanUtils {
      */
     public static String verticalAdjacentPieces10(int[][] chess, int xArrayPosition, int yArrayPosition, int pieceType,
         char c) {
-        //check from top to target
-        for (int i = xArrayPosition - 5; i < xArrayPosition; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[i][yArrayPosition];
-                //0 for empty, 1 for ally, 2 for opponent
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append(c);
-
-        //check from target to bottom
-        for (int i = xArrayPosition + 1; i < xArrayPosition + 6; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[i][yArrayPosition];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-        builder.setLength(0);
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.HORIZONTAL, RADIUS_10, pieceType, c);
     }
 
     /**
@@ -197,25 +107,7 @@ public class ChessboardScanUtils {
      */
     public static String horizontalAdjacentPieces10(int[][] chess, int xArrayPosition, int yArrayPosition, int pieceType,
         char c) {
-        //check from left to target
-        for (int i = yArrayPosition - 5; i < yArrayPosition; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[xArrayPosition][i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append(c);
-
-        //check from target to right
-        for (int i = yArrayPosition + 1; i < yArrayPosition + 6; i++) {
-            if (Chessboard.validateArrayIndex(i)) {
-                int piece = chess[xArrayPosition][i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-        builder.setLength(0);
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.VERTICAL, RADIUS_10, pieceType, c);
     }
 
     /**
@@ -230,28 +122,7 @@ public class ChessboardScanUtils {
      */
     public static String diagonalAdjacentPieces10(int[][] chess, int xArrayPosition, int yArrayPosition, int pieceType,
         char c) {
-        //check from left top to target
-        for (int i = 5; i > 0; i--) {
-            if (Chessboard.validateArrayIndex(xArrayPosition - i) && Chessboard
-                .validateArrayIndex(yArrayPosition - i)) {
-                int piece = chess[xArrayPosition - i][yArrayPosition - i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append(c);
-
-        //check from target to right bottom
-        for (int i = 1; i < 6; i++) {
-            if (Chessboard.validateArrayIndex(xArrayPosition + i) && Chessboard
-                .validateArrayIndex(yArrayPosition + i)) {
-                int piece = chess[xArrayPosition + i][yArrayPosition + i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.setLength(0);
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.DIAGONAL, RADIUS_10, pieceType, c);
     }
 
     /**
@@ -266,28 +137,7 @@ public class ChessboardScanUtils {
      */
     public static String antiDiagonalAdjacentPieces10(int[][] chess, int xArrayPosition, int yArrayPosition,
         int pieceType, char c) {
-        //check from right top to target
-        for (int i = 5; i > 0; i--) {
-            if (Chessboard.validateArrayIndex(xArrayPosition + i) && Chessboard
-                .validateArrayIndex(yArrayPosition - i)) {
-                int piece = chess[xArrayPosition + i][yArrayPosition - i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.append(c);
-
-        //check from target to left bottom
-        for (int i = 1; i < 6; i++) {
-            if (Chessboard.validateArrayIndex(xArrayPosition - i) && Chessboard
-                .validateArrayIndex(yArrayPosition + i)) {
-                int piece = chess[xArrayPosition - i][yArrayPosition + i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.setLength(0);
-        return builder.toString();
+        return adjacentPieces(chess, xArrayPosition, yArrayPosition, BitBoard.ANTI_DIAGONAL, RADIUS_10, pieceType, c);
     }
 
     /**
@@ -302,17 +152,7 @@ public class ChessboardScanUtils {
      * @return A string represent the pieces in one row
      */
     public static String scanHorizontal(int[][] chess, int x, int y, int lastX, int lastY, int pieceType) {
-        for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
-            int piece = chess[x][i];
-            if (i == y || i == lastY) {
-                builder.append("t");
-            } else {
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.setLength(0);
-        return builder.toString();
+        return linePieces(chess, x, y, lastX, lastY, BitBoard.VERTICAL, pieceType);
     }
 
     /**
@@ -327,17 +167,7 @@ public class ChessboardScanUtils {
      * @return A string represent the pieces in one row
      */
     public static String scanVertical(int[][] chess, int x, int y, int lastX, int lastY, int pieceType) {
-        for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
-            int piece = chess[i][y];
-            if (i == x || i == lastX) {
-                builder.append("t");
-            } else {
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.setLength(0);
-        return builder.toString();
+        return linePieces(chess, x, y, lastX, lastY, BitBoard.HORIZONTAL, pieceType);
     }
 
     /**
@@ -353,26 +183,7 @@ public class ChessboardScanUtils {
      */
     public static String scanDiagonal(int[][] chess, int x, int y, int lastX, int lastY, int pieceType) {
         //Scans the chessboard from right top to left bottom diagonally
-        int upperBoundX = x;
-        int upperBoundY = y;
-
-        //get the coordinates of right top corner
-        while (upperBoundY < 14 && upperBoundX > 0) {
-            upperBoundY++;
-            upperBoundX--;
-        }
-
-        for (int i = upperBoundX, j = upperBoundY; i <= upperBoundY && j >= upperBoundX; i++, j--) {
-            if ((i == x && j == y) || (i == lastX && j == lastY)) {
-                builder.append("t");
-            } else {
-                int piece = chess[i][j];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-        }
-
-        builder.setLength(0);
-        return builder.toString();
+        return linePieces(chess, x, y, lastX, lastY, BitBoard.ANTI_DIAGONAL, pieceType);
     }
 
     /**
@@ -388,31 +199,133 @@ public class ChessboardScanUtils {
      */
     public static String scanAntiDiagonal(int[][] chess, int x, int y, int lastX, int lastY, int pieceType) {
         //Scans the chessboard from left top to right bottom antiDiagonally
-        int upperBoundX = x;
-        int upperBoundY = y;
-        int lowerBoundX = x;
-        int lowerBoundY = y;
-        while (upperBoundX > 0 && upperBoundY > 0) {
-            upperBoundX--;
-            upperBoundY--;
+        return linePieces(chess, x, y, lastX, lastY, BitBoard.DIAGONAL, pieceType);
+    }
+
+    /**
+     * Returns the pieces surround a specific piece in the packed format of {@link PatternTable}, the centre counts
+     * as an ally and tiles outside the chessboard as {@link PatternTable#OUTSIDE_CELL}
+     *
+     * @param chess     The chessboard
+     * @param x         X coordinate of the centre
+     * @param y         Y coordinate of the centre
+     * @param direction Direction of the window, see {@link BitBoard#DIRECTION_STEPS}
+     * @param radius    Number of pieces on each side of the centre, at most 13
+     * @param pieceType Type of the ally piece
+     * @return Packed window of 2 * radius + 1 cells
+     */
+    public static long adjacentCode(int[][] chess, int x, int y, int direction, int radius, int pieceType) {
+        int dx = BitBoard.DIRECTION_STEPS[direction][0];
+        int dy = BitBoard.DIRECTION_STEPS[direction][1];
+        long code = 0;
+        for (int i = -radius; i <= radius; i++) {
+            int cell;
+            if (i == 0) {
+                cell = PatternTable.ALLY_CELL;
+            } else if (BitBoard.isInside(x + i * dx, y + i * dy)) {
+                cell = cellCode(chess[x + i * dx][y + i * dy], pieceType);
+            } else {
+                cell = PatternTable.OUTSIDE_CELL;
+            }
+            code |= (long)cell << (2 * (i + radius));
         }
+        return code;
+    }
 
-        while (lowerBoundX < 14 && lowerBoundY < 14) {
-            lowerBoundX++;
-            lowerBoundY++;
+    /**
+     * Writes the pieces surround a specific piece into a buffer in the string format, tiles outside the chessboard
+     * are skipped
+     *
+     * @param chess     The chessboard
+     * @param x         X coordinate of the centre
+     * @param y         Y coordinate of the centre
+     * @param direction Direction of the window, see {@link BitBoard#DIRECTION_STEPS}
+     * @param radius    Number of pieces on each side of the centre
+     * @param pieceType Type of the ally piece
+     * @param centre    The char represent the centre piece
+     * @param buffer    Buffer of at least 2 * radius + 1 chars
+     * @return Number of chars written
+     */
+    public static int adjacentPieces(int[][] chess, int x, int y, int direction, int radius, int pieceType,
+        char centre, char[] buffer) {
+        int dx = BitBoard.DIRECTION_STEPS[direction][0];
+        int dy = BitBoard.DIRECTION_STEPS[direction][1];
+        int length = 0;
+        for (int i = -radius; i <= radius; i++) {
+            if (i == 0) {
+                buffer[length++] = centre;
+            } else if (BitBoard.isInside(x + i * dx, y + i * dy)) {
+                buffer[length++] = CELL_CHARS[cellCode(chess[x + i * dx][y + i * dy], pieceType)];
+            }
         }
+        return length;
+    }
 
-        for (int i = upperBoundX, j = upperBoundY; i <= lowerBoundX && j <= lowerBoundY; i++, j++) {
-            int piece = chess[i][j];
+    /**
+     * Writes the whole line passing through two pieces into a buffer in the string format, both pieces are marked
+     * as 't'
+     *
+     * @param chess     The chessboard
+     * @param x         X coordinate of the first piece
+     * @param y         Y coordinate of the first piece
+     * @param lastX     X coordinate of the second piece, which lies on the same line
+     * @param lastY     Y coordinate of the second piece
+     * @param direction Direction of the line
+     * @param pieceType Type of the ally piece
+     * @param buffer    Buffer of at least {@link BitBoard#SIZE} chars
+     * @return Number of chars written
+     */
+    public static int linePieces(int[][] chess, int x, int y, int lastX, int lastY, int direction, int pieceType,
+        char[] buffer) {
+        int line = BitBoard.lineOf(direction, BitBoard.cellIndex(x, y));
+        int i = BitBoard.cellX(BitBoard.lineStart(line));
+        int j = BitBoard.cellY(BitBoard.lineStart(line));
+        int length = BitBoard.lineLength(line);
+        for (int k = 0; k < length; k++) {
             if ((i == x && j == y) || (i == lastX && j == lastY)) {
-                builder.append("t");
+                buffer[k] = 't';
             } else {
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
+                buffer[k] = CELL_CHARS[cellCode(chess[i][j], pieceType)];
             }
+            i += BitBoard.DIRECTION_STEPS[direction][0];
+            j += BitBoard.DIRECTION_STEPS[direction][1];
+        }
+        return length;
+    }
 
+    /**
+     * Returns a whole line of the chessboard in the packed format of {@link PatternTable}
+     *
+     * @param chess     The chessboard
+     * @param line      Global line index of {@link BitBoard}
+     * @param pieceType Type of the ally piece
+     * @return Packed line of {@link BitBoard#lineLength} cells
+     */
+    public static long lineCode(int[][] chess, int line, int pieceType) {
+        int direction = BitBoard.lineDirection(line);
+        int i = BitBoard.cellX(BitBoard.lineStart(line));
+        int j = BitBoard.cellY(BitBoard.lineStart(line));
+        long code = 0;
+        for (int k = 0; k < BitBoard.lineLength(line); k++) {
+            code |= (long)cellCode(chess[i][j], pieceType) << (2 * k);
+            i += BitBoard.DIRECTION_STEPS[direction][0];
+            j += BitBoard.DIRECTION_STEPS[direction][1];
         }
-        builder.setLength(0);
-        return builder.toString();
+        return code;
+    }
+
+    /**
+     * Returns the cell code of {@link PatternTable} of a piece
+     *
+     * @param piece     The piece, 1 for black, -1 for white and 0 for empty
+     * @param pieceType Type of the ally piece
+     * @return Cell code
+     */
+    public static int cellCode(int piece, int pieceType) {
+        if (piece == AiConst.EMPTY_STONE) {
+            return PatternTable.EMPTY_CELL;
+        }
+        return piece == pieceType ? PatternTable.ALLY_CELL : PatternTable.OPPONENT_CELL;
     }
 
     /**
@@ -423,18 +336,7 @@ public class ChessboardScanUtils {
      * @return A boolean indicates existing a threat or not
      */
     public static boolean scanVerticalThreat(int[][] chess, int pieceType) {
-        for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
-            for (int j = 0; j < GuiConst.TILE_NUM_PER_ROW; j++) {
-                int piece = chess[i][j];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            if (detectThreat(builder.toString())) {
-                return true;
-            }
-            builder.delete(0, builder.length());
-        }
-        builder.setLength(0);
-        return false;
+        return scanThreat(chess, BitBoard.VERTICAL, pieceType);
     }
 
     /**
@@ -445,19 +347,7 @@ public class ChessboardScanUtils {
      * @return A boolean indicates existing a threat or not
      */
     public static boolean scanHorizontalThreat(int[][] chess, int pieceType) {
-
-        for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
-            for (int j = 0; j < GuiConst.TILE_NUM_PER_ROW; j++) {
-                int piece = chess[j][i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            if (detectThreat(builder.toString())) {
-                return true;
-            }
-            builder.delete(0, builder.length());
-        }
-        builder.setLength(0);
-        return false;
+        return scanThreat(chess, BitBoard.HORIZONTAL, pieceType);
     }
 
     /**
@@ -467,35 +357,8 @@ public class ChessboardScanUtils {
      * @param pieceType Indicates which player moved, 1 for black -1 for white
      * @return A boolean indicates existing a threat or not
      */
-
     public static boolean scanDiagonalThreat(int[][] chess, int pieceType) {
-        //upper half chessboard
-        for (int i = 10; i >= 0; i--) {
-            int count = 0;
-            for (int j = i; j <= 14; j++) {
-                int piece = chess[j][count++];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            if (detectThreat(builder.toString())) {
-                return true;
-            }
-            builder.delete(0, builder.length());
-        }
-
-        //lower half chessboard
-        for (int i = 1; i <= 10; i++) {
-            int count = 0;
-            for (int j = i; j <= 14; j++) {
-                int piece = chess[count++][j];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            if (detectThreat(builder.toString())) {
-                return true;
-            }
-            builder.delete(0, builder.length());
-        }
-        builder.setLength(0);
-        return false;
+        return scanThreat(chess, BitBoard.DIAGONAL, pieceType);
     }
 
     /**
@@ -506,52 +369,49 @@ public class ChessboardScanUtils {
      * @return A boolean indicates existing a threat or not
      */
     public static boolean scanAntiDiagonalThreat(int[][] chess, int pieceType) {
-        //upper half chessboard
-        for (int i = 4; i <= 14; i++) {
-            int count = 0;
-            for (int j = i; j >= 0; j--) {
-                int piece = chess[count++][j];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            if (detectThreat(builder.toString())) {
-                return true;
-            }
-            ;
-            builder.delete(0, builder.length());
-        }
+        return scanThreat(chess, BitBoard.ANTI_DIAGONAL, pieceType);
+    }
 
-        //lower half chessboard
-        for (int i = 0; i <= 10; i++) {
-            int count = 14;
-            for (int j = i; j <= 14; j++) {
-                int piece = chess[j][count--];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            if (detectThreat(builder.toString())) {
+    /**
+     * Scans threats of all lines of one direction
+     *
+     * @param chess     2-dimension array represents the chessboard
+     * @param direction Direction of the lines
+     * @param pieceType Indicates which player moved, 1 for black -1 for white
+     * @return A boolean indicates existing a threat or not
+     */
+    private static boolean scanThreat(int[][] chess, int direction, int pieceType) {
+        int firstLine = BitBoard.lineOffset(direction);
+        for (int line = firstLine; line < firstLine + BitBoard.LINE_NUM[direction]; line++) {
+            if (detectThreat(lineCode(chess, line, pieceType), BitBoard.lineLength(line))) {
                 return true;
             }
-            builder.delete(0, builder.length());
         }
-        builder.setLength(0);
         return false;
     }
 
     /**
      * Detects whether a sequence of pieces contains threat.
      *
-     * @param pieces A sequence of pieces
+     * @param code   A packed sequence of pieces
+     * @param length Number of pieces
      * @return A boolean indicates existing a threat or not
      */
-    private static boolean detectThreat(String pieces) {
-        if (pieces.contains(AiConst.IMPLICATE_FOUR_DOUBLE_EMPTY)) {
-            return true;
-        }
+    private static boolean detectThreat(long code, int length) {
+        int patterns = PatternTable.CHESSBOARD_PATTERNS.match(code, length);
+        return (patterns & (PatternTable.FOUR_DOUBLE_EMPTY_CLASS | PatternTable.FOUR_SINGLE_EMPTY_CLASS
+            | PatternTable.THREE_CLASS)) != 0;
+    }
+
+    private static String adjacentPieces(int[][] chess, int x, int y, int direction, int radius, int pieceType,
+        char centre) {
+        char[] buffer = new char[2 * radius + 1];
+        return new String(buffer, 0, adjacentPieces(chess, x, y, direction, radius, pieceType, centre, buffer));
+    }
 
-        return pieces.contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_A) || pieces
-            .contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_B) || pieces.contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_C)
-            || pieces.contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_D) || pieces
-            .contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_E) || pieces.contains(AiConst.IMPLICATE_THREE_A) || pieces
-            .contains(AiConst.IMPLICATE_THREE_B) || pieces.contains(AiConst.IMPLICATE_THREE_C) || pieces
-            .contains(AiConst.IMPLICATE_THREE_D);
+    private static String linePieces(int[][] chess, int x, int y, int lastX, int lastY, int direction,
+        int pieceType) {
+        char[] buffer = new char[BitBoard.SIZE];
+        return new String(buffer, 0, linePieces(chess, x, y, lastX, lastY, direction, pieceType, buffer));
     }
 }
@@ -1,8 +1,6 @@
 package ai.utility;
 
 import ai.Agent;
-import ai.constant.AiConst;
-import gui.constant.GuiConst;
 
 /**
  * This class provides an utility class for providing heuristic function of the whole game state(h1).
@@ -12,7 +10,12 @@ import gui.constant.GuiConst;
  */
 
 public class HeuristicChessboardUtils {
-    private static StringBuilder builder = new StringBuilder();
+    /**
+     * Scores of the pattern classes of {@link PatternTable#CHESSBOARD_PATTERNS}: five, four with double empty ends,
+     * four with single empty end, three, two and one
+     */
+    private static final int[] PATTERN_SCORES = {500000, 10000, 820, 720, 120, 20};
+
     private HeuristicChessboardUtils() {
     }
 
@@ -33,6 +36,17 @@ public class HeuristicChessboardUtils {
         return allyScore - opponentScore;
     }
 
+    /**
+     * Returns the score of the chessboard of a search position. The score equals to {@link #heuristic(int[][])},
+     * but only the lines changed since the last evaluation are scanned again.
+     *
+     * @param position The search position
+     * @return score of the chessboard
+     */
+    public static int heuristic(SearchPosition position) {
+        return position.getEvaluator().getScore(Agent.aiPieceType);
+    }
+
     @Deprecated
     public static int heuristic_megaMax(int[][] chess, int pieceType) {
         int allyScore =
@@ -54,18 +68,7 @@ public class HeuristicChessboardUtils {
      * @return Score of vertical rows
      */
     private static int scanVertical(int[][] chess, int pieceType) {
-        int score = 0;
-
-        for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
-            for (int j = 0; j < GuiConst.TILE_NUM_PER_ROW; j++) {
-                int piece = chess[i][j];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            score += eval(builder.toString());
-            builder.setLength(0);
-        }
-        builder.setLength(0);
-        return score;
+        return scanLines(chess, BitBoard.VERTICAL, pieceType);
     }
 
     /**
@@ -76,19 +79,7 @@ public class HeuristicChessboardUtils {
      * @return Score of horizontal rows
      */
     private static int scanHorizontal(int[][] chess, int pieceType) {
-        StringBuilder builder = new StringBuilder();
-        int score = 0;
-
-        for (int i = 0; i < GuiConst.TILE_NUM_PER_ROW; i++) {
-            for (int j = 0; j < GuiConst.TILE_NUM_PER_ROW; j++) {
-                int piece = chess[j][i];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            score += eval(builder.toString());
-            builder.setLength(0);
-        }
-        builder.setLength(0);
-        return score;
+        return scanLines(chess, BitBoard.HORIZONTAL, pieceType);
     }
 
     /**
@@ -99,67 +90,37 @@ public class HeuristicChessboardUtils {
      * @return Score of diagonal rows
      */
     private static int scanDiagonal(int[][] chess, int pieceType) {
-        StringBuilder builder = new StringBuilder();
-        int score = 0;
-
-        //upper half chessboard
-        for (int i = 10; i >= 0; i--) {
-            int count = 0;
-            for (int j = i; j <= 14; j++) {
-                int piece = chess[j][count++];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            score += eval(builder.toString());
-            builder.delete(0, builder.length());
-        }
-
-        //lower half chessboard
-        for (int i = 1; i <= 10; i++) {
-            int count = 0;
-            for (int j = i; j <= 14; j++) {
-                int piece = chess[count++][j];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            score += eval(builder.toString());
-            builder.setLength(0);
-        }
-        builder.setLength(0);
-        return score;
+        return scanLines(chess, BitBoard.DIAGONAL, pieceType);
     }
 
     /**
-     * Scans the chessboard from left top to right bottom anti-diagonally
+     * Scans the chessboard from left top to right bottom anti-diagonally, the main anti-diagonal belongs to both
+     * halves of the chessboard and is counted twice
      *
      * @param chess     2-dimension array represents the chessboard
      * @param pieceType Indicates which player moved, 1 for black -1 for white
      * @return Score of anti-diagonal rows
      */
     private static int scanAntiDiagonal(int[][] chess, int pieceType) {
-        StringBuilder builder = new StringBuilder();
-        int score = 0;
-
-        //upper half chessboard
-        for (int i = 4; i <= 14; i++) {
-            int count = 0;
-            for (int j = i; j >= 0; j--) {
-                int piece = chess[count++][j];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            score += eval(builder.toString());
-            builder.delete(0, builder.length());
-        }
+        int mainAntiDiagonal = BitBoard.lineOffset(BitBoard.ANTI_DIAGONAL) + BitBoard.SIZE - 1;
+        return scanLines(chess, BitBoard.ANTI_DIAGONAL, pieceType) + evalCode(
+            ChessboardScanUtils.lineCode(chess, mainAntiDiagonal, pieceType), BitBoard.lineLength(mainAntiDiagonal));
+    }
 
-        //lower half chessboard
-        for (int i = 0; i <= 10; i++) {
-            int count = 14;
-            for (int j = i; j <= 14; j++) {
-                int piece = chess[j][count--];
-                builder.append(piece == 0 ? "0" : piece == pieceType ? "1" : "2");
-            }
-            score += eval(builder.toString());
-            builder.setLength(0);
+    /**
+     * Returns the total score of all lines of one direction
+     *
+     * @param chess     2-dimension array represents the chessboard
+     * @param direction Direction of the lines
+     * @param pieceType Indicates which player moved, 1 for black -1 for white
+     * @return Score of the lines
+     */
+    private static int scanLines(int[][] chess, int direction, int pieceType) {
+        int score = 0;
+        int firstLine = BitBoard.lineOffset(direction);
+        for (int line = firstLine; line < firstLine + BitBoard.LINE_NUM[direction]; line++) {
+            score += evalCode(ChessboardScanUtils.lineCode(chess, line, pieceType), BitBoard.lineLength(line));
         }
-        builder.setLength(0);
         return score;
     }
 
@@ -170,36 +131,19 @@ public class HeuristicChessboardUtils {
      * @return the score of the pieces
      */
     public static int eval(String pieces) {
-        if (pieces.contains(AiConst.IMPLICATE_FIVE)) {
-            return 500000;
-        }
-
-        if (pieces.contains(AiConst.IMPLICATE_FOUR_DOUBLE_EMPTY)) {
-            return 10000;
-        }
-
-        if (pieces.contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_A) || pieces
-            .contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_B) || pieces.contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_C)
-            || pieces.contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_D) || pieces
-            .contains(AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_E)) {
-            return 820;
-        }
-
-        if (pieces.contains(AiConst.IMPLICATE_THREE_A) || pieces.contains(AiConst.IMPLICATE_THREE_B) || pieces
-            .contains(AiConst.IMPLICATE_THREE_C) || pieces.contains(AiConst.IMPLICATE_THREE_D)) {
-            return 720;
-        }
-
-        if (pieces.contains(AiConst.IMPLICATE_TWO_A) || pieces.contains(AiConst.IMPLICATE_TWO_B) || pieces
-            .contains(AiConst.IMPLICATE_TWO_C)) {
-            return 120;
-        }
-
-        if (pieces.contains(AiConst.IMPLICATE_ONE_A) || pieces.contains(AiConst.IMPLICATE_ONE_B)) {
-            return 20;
-        }
+        return evalCode(PatternTable.encode(pieces), pieces.length());
+    }
 
-        return 0;
+    /**
+     * Returns the score of one row of pieces in the packed format of {@link PatternTable}
+     *
+     * @param code   the packed row of pieces
+     * @param length number of pieces in the row
+     * @return the score of the pieces
+     */
+    public static int evalCode(long code, int length) {
+        int patternClass = PatternTable.CHESSBOARD_PATTERNS.classify(code, length);
+        return patternClass < 0 ? 0 : PATTERN_SCORES[patternClass];
     }
 
 }
@@ -1,7 +1,5 @@
 package ai.utility;
 
-import ai.constant.PieceConst;
-
 /**
  * This class is an utility class for providing heuristic function for a specific piece(h2)
  *
@@ -25,10 +23,11 @@ public class HeuristicPieceUtils {
         int score = 0;
         int[] strategy = new int[7];
 
-        heuristic(ChessboardScanUtils.horizontalAdjacentPieces10(chess, x, y, pieceType, '1'), strategy);
-        heuristic(ChessboardScanUtils.verticalAdjacentPieces10(chess, x, y, pieceType, '1'), strategy);
-        heuristic(ChessboardScanUtils.diagonalAdjacentPieces10(chess, x, y, pieceType, '1'), strategy);
-        heuristic(ChessboardScanUtils.antiDiagonalAdjacentPieces10(chess, x, y, pieceType, '1'), strategy);
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            long row = ChessboardScanUtils.adjacentCode(chess, x, y, direction, ChessboardScanUtils.RADIUS_10,
+                pieceType);
+            heuristic(row, strategy);
+        }
 
         int num_implicate_five = strategy[0];
         int num_implicate_four = strategy[1];
@@ -60,52 +59,16 @@ public class HeuristicPieceUtils {
     }
 
     /**
-     * Does pattern matching and statistics.
+     * Does pattern matching and statistics, the pattern classes of {@link PatternTable#PIECE_PATTERNS} are in the
+     * same order as the strategy array.
      *
-     * @param row      A sequence of pieces
+     * @param row      A packed sequence of 2 * {@link ChessboardScanUtils#RADIUS_10} + 1 pieces
      * @param strategy A array for recording the pattern count
      */
-    private static void heuristic(String row, int[] strategy) {
-        if (row.contains(PieceConst.IMPLICATE_FIVE)) {
-            strategy[0]++;
-            return;
-        }
-
-        if (row.contains(PieceConst.IMPLICATE_FOUR_A)) {
-            strategy[1]++;
-            return;
-        }
-
-        if (row.contains(PieceConst.IMPLICATE_FOUR_BLOCK_A) || row.contains(PieceConst.IMPLICATE_FOUR_BLOCK_B) || row
-            .contains(PieceConst.IMPLICATE_FOUR_BLOCK_C) || row.contains(PieceConst.IMPLICATE_FOUR_BLOCK_D) || row
-            .contains(PieceConst.IMPLICATE_FOUR_BLOCK_E)) {
-            strategy[2]++;
-            return;
-        }
-
-        if (row.contains(PieceConst.IMPLICATE_THREE_A) || row.contains(PieceConst.IMPLICATE_THREE_B) || row
-            .contains(PieceConst.IMPLICATE_THREE_C) || row.contains(PieceConst.IMPLICATE_THREE_D)) {
-            strategy[3]++;
-            return;
-        }
-
-        if (row.contains(PieceConst.IMPLICATE_THREE_BLOCK_A) || row.contains(PieceConst.IMPLICATE_THREE_BLOCK_B) || row
-            .contains(PieceConst.IMPLICATE_THREE_BLOCK_C) || row.contains(PieceConst.IMPLICATE_THREE_BLOCK_D) || row
-            .contains(PieceConst.IMPLICATE_THREE_BLOCK_E) || row.contains(PieceConst.IMPLICATE_THREE_BLOCK_F) || row
-            .contains(PieceConst.IMPLICATE_THREE_BLOCK_G) || row.contains(PieceConst.IMPLICATE_THREE_BLOCK_H) || row
-            .contains(PieceConst.IMPLICATE_THREE_BLOCK_I) || row.contains(PieceConst.IMPLICATE_THREE_BLOCK_J)) {
-            strategy[4]++;
-            return;
-        }
-
-        if (row.contains(PieceConst.IMPLICATE_TWO_A) || row.contains(PieceConst.IMPLICATE_TWO_B) || row
-            .contains(PieceConst.IMPLICATE_TWO_C) || row.contains(PieceConst.IMPLICATE_TWO_D)) {
-            strategy[5]++;
-            return;
-        }
-
-        if (row.contains(PieceConst.IMPLICATE_ONE_A) || row.contains(PieceConst.IMPLICATE_ONE_B)) {
-            strategy[6]++;
+    private static void heuristic(long row, int[] strategy) {
+        int patternClass = PatternTable.PIECE_PATTERNS.classify(row, 2 * ChessboardScanUtils.RADIUS_10 + 1);
+        if (patternClass >= 0) {
+            strategy[patternClass]++;
         }
     }
 }
@@ -0,0 +1,75 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+import java.util.Arrays;
+
+/**
+ * This class is the history (butterfly) table of the history heuristic.
+ * <p>
+ * Every move which produced a cutoff gains credit for its player and tile, weighted by the square of the depth
+ * searched below the node, so cutoffs near the root count more than cutoffs near the leaves. Unlike killer moves the
+ * credit is not bound to a depth, a move which refutes many positions anywhere in the tree is tried earlier
+ * everywhere. The credit is turned into a small ordering bonus, see {@link AiConst#HISTORY_ORDERING_WEIGHT}.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class HistoryTable {
+    /**
+     * Credit limit, all credits are halved once a credit reaches it
+     */
+    private static final int MAX_CREDIT = 1 << 24;
+
+    /**
+     * Credits with the format of [player * CELL_NUM + cell], black is player 0 and white is player 1
+     */
+    private final int[] credits = new int[2 * BitBoard.CELL_NUM];
+
+    private int maxCredit;
+
+    /**
+     * Removes all credits
+     */
+    public void clear() {
+        Arrays.fill(credits, 0);
+        maxCredit = 0;
+    }
+
+    /**
+     * Gives credit to a move which produced a cutoff
+     *
+     * @param pieceType      Type of the piece of the move, 1 for black and -1 for white
+     * @param cell           Cell index of the move
+     * @param remainingDepth Depth searched below the node
+     */
+    public void add(int pieceType, int cell, int remainingDepth) {
+        int index = indexOf(pieceType, cell);
+        credits[index] += remainingDepth * remainingDepth;
+        maxCredit = Math.max(maxCredit, credits[index]);
+        if (maxCredit >= MAX_CREDIT) {
+            for (int i = 0; i < credits.length; i++) {
+                credits[i] >>= 1;
+            }
+            maxCredit >>= 1;
+        }
+    }
+
+    /**
+     * Returns the ordering bonus of a move, the move with the most credit gets the whole weight
+     *
+     * @param pieceType Type of the piece of the move, 1 for black and -1 for white
+     * @param cell      Cell index of the move
+     * @return Bonus from 0 to {@link AiConst#HISTORY_ORDERING_WEIGHT}
+     */
+    public int getBonus(int pieceType, int cell) {
+        if (maxCredit == 0) {
+            return 0;
+        }
+        return (int)((long)credits[indexOf(pieceType, cell)] * AiConst.HISTORY_ORDERING_WEIGHT / maxCredit);
+    }
+
+    private static int indexOf(int pieceType, int cell) {
+        return pieceType == AiConst.BLACK_STONE ? cell : BitBoard.CELL_NUM + cell;
+    }
+}
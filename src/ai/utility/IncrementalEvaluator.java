@@ -0,0 +1,127 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+/**
+ * This class maintains the whole-board heuristic(h1) of a bitboard incrementally.
+ * <p>
+ * The score of every line is cached for both colours. A move only changes the four lines passing through it, so
+ * {@link #update} marks those lines as dirty and {@link #getScore} re-evaluates the dirty lines only. The result is
+ * the same as {@link HeuristicChessboardUtils#heuristic(int[][])}.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class IncrementalEvaluator {
+    /**
+     * Weight of each line, {@link HeuristicChessboardUtils#heuristic(int[][])} scans the main anti-diagonal in
+     * both of its halves, so that line is counted twice
+     */
+    private static final int[] LINE_WEIGHT = new int[BitBoard.TOTAL_LINE_NUM];
+
+    static {
+        for (int line = 0; line < BitBoard.TOTAL_LINE_NUM; line++) {
+            LINE_WEIGHT[line] = 1;
+        }
+        LINE_WEIGHT[BitBoard.lineOffset(BitBoard.ANTI_DIAGONAL) + BitBoard.SIZE - 1] = 2;
+    }
+
+    private final BitBoard board;
+
+    /**
+     * Cached line scores of black and white, indexed by the global line index
+     */
+    private final int[] blackLineScores = new int[BitBoard.TOTAL_LINE_NUM];
+
+    private final int[] whiteLineScores = new int[BitBoard.TOTAL_LINE_NUM];
+
+    /**
+     * Sum of the cached line scores of black and white
+     */
+    private int blackScore;
+
+    private int whiteScore;
+
+    /**
+     * Lines changed since the last evaluation
+     */
+    private final boolean[] isDirty = new boolean[BitBoard.TOTAL_LINE_NUM];
+
+    private final int[] dirtyLines = new int[BitBoard.TOTAL_LINE_NUM];
+
+    private int dirtyCount;
+
+    /**
+     * Creates an evaluator which reads the given bitboard, every later change of the bitboard must be reported
+     * through {@link #update}
+     *
+     * @param board The bitboard
+     */
+    public IncrementalEvaluator(BitBoard board) {
+        this.board = board;
+        for (int line = 0; line < BitBoard.TOTAL_LINE_NUM; line++) {
+            markDirty(line);
+        }
+    }
+
+    /**
+     * Reports that a stone is placed on or removed from a tile
+     *
+     * @param x X coordinate of the tile
+     * @param y Y coordinate of the tile
+     */
+    public void update(int x, int y) {
+        int cell = BitBoard.cellIndex(x, y);
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            markDirty(BitBoard.lineOf(direction, cell));
+        }
+    }
+
+    /**
+     * Returns the score of the whole chessboard for a player
+     *
+     * @param pieceType Piece type of the player, 1 for black and -1 for white
+     * @return Score of the player minus score of the opponent
+     */
+    public int getScore(int pieceType) {
+        for (int i = 0; i < dirtyCount; i++) {
+            refreshLine(dirtyLines[i]);
+        }
+        dirtyCount = 0;
+        return pieceType == AiConst.BLACK_STONE ? blackScore - whiteScore : whiteScore - blackScore;
+    }
+
+    private void markDirty(int line) {
+        if (!isDirty[line]) {
+            isDirty[line] = true;
+            dirtyLines[dirtyCount++] = line;
+        }
+    }
+
+    /**
+     * Re-evaluates a line for both colours and updates the sums
+     *
+     * @param line Global line index
+     */
+    private void refreshLine(int line) {
+        isDirty[line] = false;
+        int black = LINE_WEIGHT[line] * evalLine(line, AiConst.BLACK_STONE);
+        int white = LINE_WEIGHT[line] * evalLine(line, AiConst.WHITE_STONE);
+        blackScore += black - blackLineScores[line];
+        whiteScore += white - whiteLineScores[line];
+        blackLineScores[line] = black;
+        whiteLineScores[line] = white;
+    }
+
+    /**
+     * Returns the score of a line for a player
+     *
+     * @param line      Global line index
+     * @param pieceType Piece type of the player
+     * @return Score of the line
+     */
+    private int evalLine(int line, int pieceType) {
+        long code = PatternTable.encodeLine(board.getLine(pieceType, line), board.getLine(pieceType * -1, line));
+        return HeuristicChessboardUtils.evalCode(code, BitBoard.lineLength(line));
+    }
+}
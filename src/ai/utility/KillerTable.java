@@ -0,0 +1,67 @@
+package ai.utility;
+
+import java.util.Arrays;
+
+/**
+ * This class is a table of killer moves with two slots for every depth.
+ * <p>
+ * A killer move is a move which produced a cutoff in another node of the same depth, and it is likely to produce a
+ * cutoff again in the current node. The newest killer of a depth is kept in the first slot and the previous one is
+ * moved to the second slot, so a depth always remembers its two most recent distinct killers.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class KillerTable {
+    private static final int SLOT_NUM = 2;
+
+    /**
+     * Cell indexes of the killer moves with the format of [depth][slot], -1 for an empty slot
+     */
+    private int[][] killers = new int[0][SLOT_NUM];
+
+    /**
+     * Empties the table and makes room for every depth of a search
+     *
+     * @param depthLimit Depth of the leaf nodes of the search
+     */
+    public void reset(int depthLimit) {
+        if (killers.length <= depthLimit) {
+            killers = new int[depthLimit + 1][SLOT_NUM];
+        }
+        for (int[] slots : killers) {
+            Arrays.fill(slots, -1);
+        }
+    }
+
+    /**
+     * Records a move which produced a cutoff
+     *
+     * @param depth Depth of the node
+     * @param cell  Cell index of the move
+     */
+    public void add(int depth, int cell) {
+        int[] slots = killers[depth];
+        if (slots[0] != cell) {
+            slots[1] = slots[0];
+            slots[0] = cell;
+        }
+    }
+
+    /**
+     * Puts the killer moves of a depth in front of the generated moves, the first slot first. A killer which is not
+     * among the generated moves is not added, the generator has already judged it as a weak move of the node
+     *
+     * @param moves Generated moves of the node
+     * @param depth Depth of the node
+     */
+    public void promote(MoveList moves, int depth) {
+        int[] slots = killers[depth];
+        for (int slot = SLOT_NUM - 1; slot >= 0; slot--) {
+            int cell = slots[slot];
+            if (cell >= 0) {
+                moves.moveToFront(cell);
+            }
+        }
+    }
+}
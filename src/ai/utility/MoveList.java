@@ -0,0 +1,155 @@
+package ai.utility;
+
+/**
+ * This class is a reusable list of scored moves which keeps only the best moves offered to it.
+ * <p>
+ * A move is packed into one long key, the score in the high 32 bits and the inverted cell index in the low 32
+ * bits, so a greater key is a better move and moves of equal score are ordered by ascending cell index. While moves
+ * are offered the keys form a bounded min-heap, the worst kept move is at the root and is replaced by any better
+ * move. {@link #sort} then orders the kept moves from the best to the worst, no other allocation or full sort is
+ * needed.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class MoveList {
+    private static final long CELL_MASK = 0xFFFFFFFFL;
+
+    private final long[] keys;
+
+    private int size;
+
+    /**
+     * Maximum number of moves kept by {@link #offer}
+     */
+    private int limit;
+
+    /**
+     * Creates a move list
+     *
+     * @param capacity Maximum number of moves the list can hold
+     */
+    public MoveList(int capacity) {
+        this.keys = new long[capacity];
+    }
+
+    /**
+     * Empties the list
+     *
+     * @param limit Maximum number of moves kept by the following {@link #offer} calls
+     */
+    public void clear(int limit) {
+        this.size = 0;
+        this.limit = Math.min(limit, keys.length);
+    }
+
+    /**
+     * Offers a move, it is kept if the list is not full or it is better than the worst kept move
+     *
+     * @param cell  Cell index of the move
+     * @param score Score of the move
+     */
+    public void offer(int cell, int score) {
+        long key = toKey(cell, score);
+        if (size < limit) {
+            //sifts up
+            int i = size++;
+            while (i > 0 && keys[(i - 1) >>> 1] > key) {
+                keys[i] = keys[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            keys[i] = key;
+        } else if (limit > 0 && key > keys[0]) {
+            siftDown(key, size);
+        }
+    }
+
+    /**
+     * Orders the kept moves from the best to the worst, must be called after the last {@link #offer}
+     */
+    public void sort() {
+        //heap sort, the worst remaining move is moved to the end each time
+        for (int end = size - 1; end > 0; end--) {
+            long worst = keys[0];
+            siftDown(keys[end], end);
+            keys[end] = worst;
+        }
+    }
+
+    /**
+     * Inserts a move in front of all other moves, the list must be sorted and must have a free slot
+     *
+     * @param cell  Cell index of the move
+     * @param score Score of the move
+     */
+    public void addFirst(int cell, int score) {
+        System.arraycopy(keys, 0, keys, 1, size);
+        keys[0] = toKey(cell, score);
+        size++;
+    }
+
+    /**
+     * Moves a move to the front of the sorted list, the moves before it are shifted back by one
+     *
+     * @param cell Cell index of the move
+     * @return A boolean indicates whether the move is in the list
+     */
+    public boolean moveToFront(int cell) {
+        long inverted = BitBoard.CELL_NUM - 1 - cell;
+        for (int i = 0; i < size; i++) {
+            if ((keys[i] & CELL_MASK) == inverted) {
+                long key = keys[i];
+                System.arraycopy(keys, 0, keys, 1, i);
+                keys[0] = key;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCell(int index) {
+        return BitBoard.CELL_NUM - 1 - (int)(keys[index] & CELL_MASK);
+    }
+
+    public int getX(int index) {
+        return BitBoard.cellX(getCell(index));
+    }
+
+    public int getY(int index) {
+        return BitBoard.cellY(getCell(index));
+    }
+
+    public int getScore(int index) {
+        return (int)(keys[index] >> 32);
+    }
+
+    /**
+     * Places a key at the root of the heap of the first n keys and moves it down to its position
+     */
+    private void siftDown(long key, int n) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) {
+                break;
+            }
+            if (child + 1 < n && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (keys[child] >= key) {
+                break;
+            }
+            keys[i] = keys[child];
+            i = child;
+        }
+        keys[i] = key;
+    }
+
+    private static long toKey(int cell, int score) {
+        return ((long)score << 32) | (BitBoard.CELL_NUM - 1 - cell);
+    }
+}
@@ -0,0 +1,134 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+/**
+ * This class caches the move ordering score of every tile, i.e. {@link ai.GreedyBestFirst#totalMark}, for a
+ * bitboard.
+ * <p>
+ * The score of a tile is the sum over the four directions of the 8 adjacent pieces window, evaluated for both
+ * colours. A stone only changes the windows of the tiles within {@link ChessboardScanUtils#RADIUS_8} steps along its
+ * four lines, so {@link #update} invalidates those entries and they are evaluated again when they are read.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class MoveScoreCache {
+    private static final int RADIUS = ChessboardScanUtils.RADIUS_8;
+
+    private static final int WINDOW_LENGTH = 2 * RADIUS + 1;
+
+    private static final long WINDOW_MASK = (1L << (2 * WINDOW_LENGTH)) - 1;
+
+    /**
+     * Difference of the cell index between two adjacent cells of each direction
+     */
+    private static final int[] CELL_STEP = new int[BitBoard.DIRECTION_NUM];
+
+    static {
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            CELL_STEP[direction] = BitBoard.cellIndex(BitBoard.DIRECTION_STEPS[direction][0],
+                BitBoard.DIRECTION_STEPS[direction][1]);
+        }
+    }
+
+    private final BitBoard board;
+
+    /**
+     * Cached window scores of black and white with the format of [direction * CELL_NUM + cell]
+     */
+    private final int[] blackScores = new int[BitBoard.DIRECTION_NUM * BitBoard.CELL_NUM];
+
+    private final int[] whiteScores = new int[BitBoard.DIRECTION_NUM * BitBoard.CELL_NUM];
+
+    private final boolean[] isValid = new boolean[BitBoard.DIRECTION_NUM * BitBoard.CELL_NUM];
+
+    /**
+     * Creates a cache which reads the given bitboard, every later change of the bitboard must be reported through
+     * {@link #update}
+     *
+     * @param board The bitboard
+     */
+    public MoveScoreCache(BitBoard board) {
+        this.board = board;
+    }
+
+    /**
+     * Reports that a stone is placed on or removed from a tile
+     *
+     * @param x X coordinate of the tile
+     * @param y Y coordinate of the tile
+     */
+    public void update(int x, int y) {
+        int cell = BitBoard.cellIndex(x, y);
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            int position = BitBoard.positionOf(direction, cell);
+            int first = Math.max(position - RADIUS, 0);
+            int last = Math.min(position + RADIUS, BitBoard.lineLength(BitBoard.lineOf(direction, cell)) - 1);
+            int base = direction * BitBoard.CELL_NUM + cell;
+            for (int i = first - position; i <= last - position; i++) {
+                isValid[base + i * CELL_STEP[direction]] = false;
+            }
+        }
+    }
+
+    /**
+     * Returns the score of an empty tile for both colours, equals to {@link ai.GreedyBestFirst#totalMark}
+     *
+     * @param x X coordinate of the tile
+     * @param y Y coordinate of the tile
+     * @return Score of the tile
+     */
+    public int getScore(int x, int y) {
+        return getScore(x, y, AiConst.BLACK_STONE) + getScore(x, y, AiConst.WHITE_STONE);
+    }
+
+    /**
+     * Returns the score of an empty tile for one colour
+     *
+     * @param x         X coordinate of the tile
+     * @param y         Y coordinate of the tile
+     * @param pieceType Type of the piece, 1 for black and -1 for white
+     * @return Score of the tile
+     */
+    public int getScore(int x, int y, int pieceType) {
+        int cell = BitBoard.cellIndex(x, y);
+        int[] scores = pieceType == AiConst.BLACK_STONE ? blackScores : whiteScores;
+        int score = 0;
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            int index = direction * BitBoard.CELL_NUM + cell;
+            if (!isValid[index]) {
+                blackScores[index] = evalWindow(direction, cell, AiConst.BLACK_STONE);
+                whiteScores[index] = evalWindow(direction, cell, AiConst.WHITE_STONE);
+                isValid[index] = true;
+            }
+            score += scores[index];
+        }
+        return score;
+    }
+
+    /**
+     * Evaluates the 8 adjacent pieces window of a tile, the tile itself counts as an ally
+     *
+     * @param direction Direction of the window
+     * @param cell      Cell index of the tile
+     * @param pieceType Type of the ally piece
+     * @return Score of the window
+     */
+    private int evalWindow(int direction, int cell, int pieceType) {
+        int line = BitBoard.lineOf(direction, cell);
+        int position = BitBoard.positionOf(direction, cell);
+        long code = PatternTable.encodeLine(board.getLine(pieceType, line), board.getLine(pieceType * -1, line));
+
+        //moves the first cell of the window to bit 0, cells before the start of the line are outside
+        int shift = 2 * (position - RADIUS);
+        long window = shift >= 0 ? code >>> shift : (code << -shift) | ((1L << -shift) - 1);
+        //cells after the end of the line are outside
+        int inside = BitBoard.lineLength(line) - position + RADIUS;
+        if (inside < WINDOW_LENGTH) {
+            window |= -1L << (2 * inside);
+        }
+        window = (window & WINDOW_MASK & ~(3L << (2 * RADIUS))) | ((long)PatternTable.ALLY_CELL << (2 * RADIUS));
+        return HeuristicChessboardUtils.evalCode(window, WINDOW_LENGTH);
+    }
+}
@@ -0,0 +1,159 @@
+package ai.utility;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * This class is an Aho-Corasick automaton which finds all patterns of a family contained in a row of pieces in a
+ * single pass over the row.
+ * <p>
+ * The alphabet is '0' for empty, '1' for ally, '2' for opponent and 't' for gain square, any other character
+ * restarts the automaton. The automaton is compiled into a complete transition table, so matching is one table
+ * load per character.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class PatternMatcher {
+    private static final int ALPHABET_SIZE = 4;
+
+    /**
+     * Transition table with the format of [state * ALPHABET_SIZE + symbol]
+     */
+    private final int[] transitions;
+
+    /**
+     * Ids of the patterns ending at each state, bit i for the i-th pattern
+     */
+    private final long[] outputs;
+
+    /**
+     * Compiles a family of patterns
+     *
+     * @param patterns At most 64 patterns, the id of a pattern is its index in the array
+     */
+    public PatternMatcher(String... patterns) {
+        if (patterns.length > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " patterns are supported");
+        }
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+        int[] trie = new int[maxStates * ALPHABET_SIZE];
+        Arrays.fill(trie, -1);
+        long[] output = new long[maxStates];
+        int stateCount = 1;
+
+        //builds the trie
+        for (int id = 0; id < patterns.length; id++) {
+            int state = 0;
+            for (int i = 0; i < patterns[id].length(); i++) {
+                int symbol = symbolOf(patterns[id].charAt(i));
+                if (symbol < 0) {
+                    throw new IllegalArgumentException("Invalid pattern " + patterns[id]);
+                }
+                if (trie[state * ALPHABET_SIZE + symbol] < 0) {
+                    trie[state * ALPHABET_SIZE + symbol] = stateCount++;
+                }
+                state = trie[state * ALPHABET_SIZE + symbol];
+            }
+            output[state] |= 1L << id;
+        }
+
+        //completes the transitions along the failure links in breadth-first order
+        int[] failure = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            int next = trie[symbol];
+            if (next < 0) {
+                trie[symbol] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output[state] |= output[failure[state]];
+            for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+                int next = trie[state * ALPHABET_SIZE + symbol];
+                int fallback = trie[failure[state] * ALPHABET_SIZE + symbol];
+                if (next < 0) {
+                    trie[state * ALPHABET_SIZE + symbol] = fallback;
+                } else {
+                    failure[next] = fallback;
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = Arrays.copyOf(trie, stateCount * ALPHABET_SIZE);
+        this.outputs = Arrays.copyOf(output, stateCount);
+    }
+
+    /**
+     * Returns all patterns contained in a row
+     *
+     * @param pieces A row of pieces
+     * @return Bit i is set if the i-th pattern is contained in the row
+     */
+    public long match(CharSequence pieces) {
+        int state = 0;
+        long matched = 0;
+        for (int i = 0; i < pieces.length(); i++) {
+            int symbol = symbolOf(pieces.charAt(i));
+            state = symbol < 0 ? 0 : transitions[state * ALPHABET_SIZE + symbol];
+            matched |= outputs[state];
+        }
+        return matched;
+    }
+
+    /**
+     * Determines whether a row contains any pattern of the family
+     *
+     * @param pieces A row of pieces
+     * @return A boolean indicates whether any pattern is found
+     */
+    public boolean matchesAny(CharSequence pieces) {
+        return match(pieces) != 0;
+    }
+
+    /**
+     * Returns all patterns contained in the first chars of a buffer
+     *
+     * @param pieces A buffer holds a row of pieces
+     * @param length Number of pieces of the row
+     * @return Bit i is set if the i-th pattern is contained in the row
+     */
+    public long match(char[] pieces, int length) {
+        int state = 0;
+        long matched = 0;
+        for (int i = 0; i < length; i++) {
+            int symbol = symbolOf(pieces[i]);
+            state = symbol < 0 ? 0 : transitions[state * ALPHABET_SIZE + symbol];
+            matched |= outputs[state];
+        }
+        return matched;
+    }
+
+    public boolean matchesAny(char[] pieces, int length) {
+        return match(pieces, length) != 0;
+    }
+
+    private static int symbolOf(char c) {
+        switch (c) {
+            case '0':
+                return 0;
+            case '1':
+                return 1;
+            case '2':
+                return 2;
+            case 't':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+}
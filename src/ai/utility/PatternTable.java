@@ -0,0 +1,199 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+import ai.constant.PieceConst;
+
+/**
+ * This class classifies a row of pieces with a precomputed lookup table instead of calling {@link String#contains}
+ * for every pattern.
+ * <p>
+ * A row is packed into a long with 2 bits per cell (0 for empty, 1 for ally, 2 for opponent and 3 for anything
+ * else, e.g. outside the chessboard), cell i at bits 2i and 2i + 1. Patterns are grouped into classes, and for every
+ * possible window of {@link #WINDOW_SIZE} cells the table stores the set of classes having a pattern which is a
+ * prefix of the window. The classes contained in a row are then the union of the table entries of all its windows.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class PatternTable {
+    /**
+     * Number of cells in one table window, equals to the length of the longest pattern
+     */
+    private static final int WINDOW_SIZE = 7;
+
+    private static final int WINDOW_MASK = (1 << (2 * WINDOW_SIZE)) - 1;
+
+    /**
+     * Length of the shortest pattern, windows starting after the last such cell cannot match
+     */
+    private static final int MIN_PATTERN_LENGTH = 5;
+
+    /**
+     * Cell codes of the packed format
+     */
+    public static final int EMPTY_CELL = 0;
+
+    public static final int ALLY_CELL = 1;
+
+    public static final int OPPONENT_CELL = 2;
+
+    public static final int OUTSIDE_CELL = 3;
+
+    /**
+     * Pattern classes of {@link AiConst} used by the whole-board heuristic(h1), from the most to the least valuable
+     */
+    public static final PatternTable CHESSBOARD_PATTERNS = new PatternTable(new String[][] {
+        {AiConst.IMPLICATE_FIVE},
+        {AiConst.IMPLICATE_FOUR_DOUBLE_EMPTY},
+        {AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_A, AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_B,
+            AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_C, AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_D,
+            AiConst.IMPLICATE_FOUR_SINGLE_EMPTY_E},
+        {AiConst.IMPLICATE_THREE_A, AiConst.IMPLICATE_THREE_B, AiConst.IMPLICATE_THREE_C, AiConst.IMPLICATE_THREE_D},
+        {AiConst.IMPLICATE_TWO_A, AiConst.IMPLICATE_TWO_B, AiConst.IMPLICATE_TWO_C},
+        {AiConst.IMPLICATE_ONE_A, AiConst.IMPLICATE_ONE_B}});
+
+    /**
+     * Class masks of {@link #CHESSBOARD_PATTERNS}
+     */
+    public static final int FIVE_CLASS = 1;
+
+    public static final int FOUR_DOUBLE_EMPTY_CLASS = 1 << 1;
+
+    public static final int FOUR_SINGLE_EMPTY_CLASS = 1 << 2;
+
+    public static final int THREE_CLASS = 1 << 3;
+
+    /**
+     * Pattern classes of {@link PieceConst} used by the piece heuristic(h2), in the order of its strategy array
+     */
+    public static final PatternTable PIECE_PATTERNS = new PatternTable(new String[][] {
+        {PieceConst.IMPLICATE_FIVE},
+        {PieceConst.IMPLICATE_FOUR_A},
+        {PieceConst.IMPLICATE_FOUR_BLOCK_A, PieceConst.IMPLICATE_FOUR_BLOCK_B, PieceConst.IMPLICATE_FOUR_BLOCK_C,
+            PieceConst.IMPLICATE_FOUR_BLOCK_D, PieceConst.IMPLICATE_FOUR_BLOCK_E},
+        {PieceConst.IMPLICATE_THREE_A, PieceConst.IMPLICATE_THREE_B, PieceConst.IMPLICATE_THREE_C,
+            PieceConst.IMPLICATE_THREE_D},
+        {PieceConst.IMPLICATE_THREE_BLOCK_A, PieceConst.IMPLICATE_THREE_BLOCK_B, PieceConst.IMPLICATE_THREE_BLOCK_C,
+            PieceConst.IMPLICATE_THREE_BLOCK_D, PieceConst.IMPLICATE_THREE_BLOCK_E, PieceConst.IMPLICATE_THREE_BLOCK_F,
+            PieceConst.IMPLICATE_THREE_BLOCK_G, PieceConst.IMPLICATE_THREE_BLOCK_H, PieceConst.IMPLICATE_THREE_BLOCK_I,
+            PieceConst.IMPLICATE_THREE_BLOCK_J},
+        {PieceConst.IMPLICATE_TWO_A, PieceConst.IMPLICATE_TWO_B, PieceConst.IMPLICATE_TWO_C,
+            PieceConst.IMPLICATE_TWO_D},
+        {PieceConst.IMPLICATE_ONE_A, PieceConst.IMPLICATE_ONE_B}});
+
+    /**
+     * Class masks of all windows, indexed by the packed window
+     */
+    private final byte[] table = new byte[WINDOW_MASK + 1];
+
+    /**
+     * Builds the lookup table of a group of pattern classes
+     *
+     * @param classes Patterns of each class, at most 8 classes
+     */
+    PatternTable(String[][] classes) {
+        for (int window = 0; window <= WINDOW_MASK; window++) {
+            int mask = 0;
+            for (int i = 0; i < classes.length; i++) {
+                for (String pattern : classes[i]) {
+                    if (isPrefix(pattern, window)) {
+                        mask |= 1 << i;
+                        break;
+                    }
+                }
+            }
+            table[window] = (byte)mask;
+        }
+    }
+
+    /**
+     * Returns the classes contained in a row
+     *
+     * @param code   Packed row
+     * @param length Number of cells of the row, at most 28
+     * @return Bit i is set if the row contains a pattern of class i
+     */
+    public int match(long code, int length) {
+        //cells after the end of the row never match
+        long padded = code | (-1L << (2 * length));
+        int mask = 0;
+        for (int offset = 0; offset <= length - MIN_PATTERN_LENGTH; offset++) {
+            mask |= table[(int)(padded >>> (2 * offset)) & WINDOW_MASK];
+        }
+        return mask & 0xFF;
+    }
+
+    /**
+     * Returns the most valuable class contained in a row
+     *
+     * @param code   Packed row
+     * @param length Number of cells of the row
+     * @return Index of the class, or -1 if the row contains no pattern
+     */
+    public int classify(long code, int length) {
+        int mask = match(code, length);
+        return mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Packs a row in the string format, '0' for empty, '1' for ally and '2' for opponent
+     *
+     * @param pieces A row of pieces
+     * @return Packed row
+     */
+    public static long encode(CharSequence pieces) {
+        long code = 0;
+        for (int i = 0; i < pieces.length(); i++) {
+            code |= (long)cellCode(pieces.charAt(i)) << (2 * i);
+        }
+        return code;
+    }
+
+    /**
+     * Packs a line of the bitboard
+     *
+     * @param ally     Line mask of the ally stones
+     * @param opponent Line mask of the opponent stones
+     * @return Packed line
+     */
+    public static long encodeLine(int ally, int opponent) {
+        return spread(ally) | (spread(opponent) << 1);
+    }
+
+    /**
+     * Moves bit i of a 16-bit value to bit 2i
+     */
+    private static long spread(int bits) {
+        long x = bits & 0xFFFF;
+        x = (x | (x << 8)) & 0x00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0FL;
+        x = (x | (x << 2)) & 0x33333333L;
+        x = (x | (x << 1)) & 0x55555555L;
+        return x;
+    }
+
+    private static int cellCode(char c) {
+        switch (c) {
+            case '0':
+                return EMPTY_CELL;
+            case '1':
+                return ALLY_CELL;
+            case '2':
+                return OPPONENT_CELL;
+            default:
+                return OUTSIDE_CELL;
+        }
+    }
+
+    /**
+     * Determines whether a pattern is a prefix of a packed window
+     */
+    private static boolean isPrefix(String pattern, int window) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (((window >>> (2 * i)) & 3) != cellCode(pattern.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,456 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+/**
+ * This class is a depth-first proof-number (df-pn) solver of threat sequences.
+ * <p>
+ * The attacker, the player to move at the root, wins if the tree of its threats is proven: at an OR node the
+ * attacker plays a four or an open three and one move must win, at an AND node the defender answers and every
+ * defence must lose, see {@link ThreatBoard}. An OR node is proven at once if the attacker wins by continuous fours,
+ * and disproven if it has no threat left, so a disproof means the attacker has no winning threat sequence.
+ * <p>
+ * The proof number of a node is the number of leaves still to be proven to prove it and the disproof number the
+ * number of leaves to disprove it. The solver always expands the most proving node, and the search stays below a
+ * node until its numbers exceed the thresholds given by its parent, so the numbers of the visited nodes are kept in
+ * a {@link ProofNumberTable} instead of a tree in memory.
+ * <p>
+ * Without a bound the search follows long lines of fours whose proof numbers stay small, so it is iterative
+ * deepening on the number of threats as {@link VctSolver}, and a node which is proven or disproven within a
+ * remaining depth keeps its numbers in the next iterations. The key of a node includes its remaining depth and the
+ * attacker, the table is kept across solves.
+ *
+ * @author Cirun Zhang
+ * @version 1.1
+ */
+public class ProofNumberSolver {
+    public static final int PROVEN = 1;
+
+    public static final int DISPROVEN = -1;
+
+    public static final int UNKNOWN = 0;
+
+    private static final int INFINITY = ProofNumberTable.INFINITY;
+
+    /**
+     * Multiplied by the remaining depth and the attacker of a node and mixed into its key
+     */
+    private static final long DEPTH_KEY = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Results of the expansion of a node which is decided without its children
+     */
+    private static final int PROVEN_LEAF = -1;
+
+    private static final int DISPROVEN_LEAF = -2;
+
+    private final ProofNumberTable table;
+
+    private final VcfSolver vcfSolver = new VcfSolver();
+
+    private ThreatBoard board;
+
+    private int attacker;
+
+    private long nodeLimit;
+
+    private long nodes;
+
+    private int proofNumber;
+
+    private int disproofNumber;
+
+    private int[] principalLine = new int[0];
+
+    /**
+     * Key of the root in the running iteration and the move which proved it, the winning child of the root may be
+     * replaced in the table by the final store of the root
+     */
+    private long rootKey;
+
+    private int rootWinningMove;
+
+    /**
+     * Moves and child numbers of the nodes on the search path, indexed by {@link #bufferIndex} which decreases from a
+     * node to its children, and the tiles completing five of a four, allocated once for every node
+     */
+    private final int[][] moveBuffers = new int[2 * AiConst.PROOF_NUMBER_MAXIMUM_DEPTH + 1][BitBoard.CELL_NUM];
+
+    private final int[][] childBuffers = new int[2 * AiConst.PROOF_NUMBER_MAXIMUM_DEPTH + 1][2];
+
+    private final int[] points = new int[VcfSolver.MAX_FIVE_POINTS];
+
+    /**
+     * Creates a solver with a table of the given size
+     *
+     * @param tableSizeInMb Size of the table of the nodes in megabytes
+     */
+    public ProofNumberSolver(int tableSizeInMb) {
+        this.table = new ProofNumberTable(tableSizeInMb);
+    }
+
+    /**
+     * Searches until the root is solved within {@link AiConst#PROOF_NUMBER_MAXIMUM_DEPTH} threats or the node limit
+     * is reached
+     *
+     * @param chess     2-dimension array represents the chessboard
+     * @param pieceType Type of the attacker which moves next, 1 for black and -1 for white
+     * @param nodeLimit Maximum number of nodes to expand
+     * @return {@link #PROVEN}, {@link #DISPROVEN} or {@link #UNKNOWN} if the node limit is reached
+     */
+    public int solve(int[][] chess, int pieceType, long nodeLimit) {
+        board = new ThreatBoard(chess, pieceType, vcfSolver);
+        attacker = pieceType;
+        this.nodeLimit = nodeLimit;
+        nodes = 0;
+        rootWinningMove = -1;
+
+        int[] numbers = new int[2];
+        int maximumDepth = 1;
+        while (true) {
+            numbers[0] = INFINITY;
+            numbers[1] = INFINITY;
+            rootKey = keyOf(true, maximumDepth);
+            search(true, maximumDepth, numbers);
+            if (numbers[1] != 0 || maximumDepth == AiConst.PROOF_NUMBER_MAXIMUM_DEPTH) {
+                break;
+            }
+            maximumDepth++;
+        }
+        proofNumber = numbers[0];
+        disproofNumber = numbers[1];
+        principalLine = findPrincipalLine(maximumDepth);
+
+        if (proofNumber == 0) {
+            return PROVEN;
+        }
+        return disproofNumber == 0 ? DISPROVEN : UNKNOWN;
+    }
+
+    /**
+     * Returns the proof number of the root after the last solve
+     *
+     * @return 0 if the win is proven, {@link ProofNumberTable#INFINITY} if it is disproven
+     */
+    public int getProofNumber() {
+        return proofNumber;
+    }
+
+    /**
+     * Returns the disproof number of the root after the last solve
+     *
+     * @return 0 if the win is disproven within the maximum depth, {@link ProofNumberTable#INFINITY} if it is proven
+     */
+    public int getDisproofNumber() {
+        return disproofNumber;
+    }
+
+    /**
+     * Returns the number of nodes expanded by the last solve
+     *
+     * @return Number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the principal line of the last solve in cell indexes, the moves of the attacker and the defender
+     * alternate. A proven line ends with the victory by continuous fours of the attacker and follows the defence
+     * which took the most work to refute, a disproven line follows the threat which took the most work to disprove,
+     * and an unknown line follows the most proving nodes. A line stops early at a node whose children are replaced
+     * in the table, but a proven line always starts with the winning move of the attacker
+     *
+     * @return Cell indexes of the moves from the first move of the attacker
+     */
+    public int[] getPrincipalLine() {
+        return principalLine.clone();
+    }
+
+    /**
+     * Returns the attacker of the last solve
+     *
+     * @return Type of the attacker, 1 for black and -1 for white
+     */
+    public int getAttacker() {
+        return attacker;
+    }
+
+    /**
+     * Returns the table of the nodes
+     *
+     * @return The table, it is kept across solves
+     */
+    public ProofNumberTable getTable() {
+        return table;
+    }
+
+    /**
+     * Multiple iterative deepening of a node, it searches below the node until its proof number reaches the first
+     * threshold or its disproof number reaches the second one, and stores the numbers of the node
+     *
+     * @param isOrNode       A boolean indicates whether the attacker is to move
+     * @param remainingDepth Number of threats the attacker may still make before the final fours
+     * @param numbers        The thresholds of the node, which receive its proof and disproof numbers
+     */
+    private void search(boolean isOrNode, int remainingDepth, int[] numbers) {
+        nodes++;
+        long startNodes = nodes;
+        long key = keyOf(isOrNode, remainingDepth);
+        int[] moves = moveBuffers[bufferIndex(isOrNode, remainingDepth)];
+        int moveNum = expand(isOrNode, remainingDepth, moves);
+        if (moveNum < 0) {
+            numbers[0] = moveNum == PROVEN_LEAF ? 0 : INFINITY;
+            numbers[1] = moveNum == PROVEN_LEAF ? INFINITY : 0;
+            table.store(key, numbers[0], numbers[1], 1);
+            return;
+        }
+
+        int proofThreshold = numbers[0];
+        int disproofThreshold = numbers[1];
+        int mover = isOrNode ? attacker : attacker * -1;
+        int childDepth = isOrNode ? remainingDepth - 1 : remainingDepth;
+        int[] child = childBuffers[bufferIndex(isOrNode, remainingDepth)];
+        while (true) {
+            //the numbers minimised by the player to move are called min, the others are summed
+            int min = INFINITY;
+            int secondMin = INFINITY;
+            int sum = 0;
+            int best = 0;
+            int bestOther = 0;
+            for (int i = 0; i < moveNum; i++) {
+                board.play(moves[i], mover);
+                childNumbers(!isOrNode, childDepth, child);
+                board.undo(moves[i], mover);
+                int childMin = isOrNode ? child[0] : child[1];
+                int childOther = isOrNode ? child[1] : child[0];
+                sum = Math.min(sum + childOther, INFINITY);
+                if (childMin < min) {
+                    secondMin = min;
+                    min = childMin;
+                    best = i;
+                    bestOther = childOther;
+                } else if (childMin < secondMin) {
+                    secondMin = childMin;
+                }
+            }
+            numbers[0] = isOrNode ? min : sum;
+            numbers[1] = isOrNode ? sum : min;
+            if (numbers[0] >= proofThreshold || numbers[1] >= disproofThreshold || nodes >= nodeLimit) {
+                if (isOrNode && numbers[0] == 0 && key == rootKey) {
+                    rootWinningMove = moves[best];
+                }
+                break;
+            }
+
+            //the thresholds of the most proving child
+            int minThreshold = isOrNode ? proofThreshold : disproofThreshold;
+            int sumThreshold = isOrNode ? disproofThreshold : proofThreshold;
+            //the threshold above the second best child is widened by a quarter, so the search switches less often
+            //between two children of close numbers
+            int childMinThreshold = Math.min(minThreshold,
+                secondMin == INFINITY ? INFINITY : Math.min(secondMin + secondMin / 4 + 1, INFINITY));
+            int childSumThreshold = Math.min(sumThreshold - sum + bestOther, INFINITY);
+            child[0] = isOrNode ? childMinThreshold : childSumThreshold;
+            child[1] = isOrNode ? childSumThreshold : childMinThreshold;
+            board.play(moves[best], mover);
+            search(!isOrNode, childDepth, child);
+            board.undo(moves[best], mover);
+        }
+
+        table.store(key, numbers[0], numbers[1], nodes - startNodes + 1);
+        if (numbers[0] == 0 || numbers[1] == 0) {
+            collectChildren(isOrNode, remainingDepth, moves, moveNum);
+        }
+    }
+
+    /**
+     * Marks the children of a solved node as collectable, but the child followed by the principal line
+     *
+     * @param isOrNode       A boolean indicates whether the attacker is to move at the node
+     * @param remainingDepth Remaining depth of the node
+     * @param moves          Moves of the node
+     * @param moveNum        Number of the moves
+     */
+    private void collectChildren(boolean isOrNode, int remainingDepth, int[] moves, int moveNum) {
+        int mover = isOrNode ? attacker : attacker * -1;
+        int kept = principalChild(isOrNode, remainingDepth, moves, moveNum);
+        for (int i = 0; i < moveNum; i++) {
+            if (i != kept) {
+                board.play(moves[i], mover);
+                table.markCollectable(keyOf(!isOrNode, isOrNode ? remainingDepth - 1 : remainingDepth));
+                board.undo(moves[i], mover);
+            }
+        }
+    }
+
+    /**
+     * Generates the moves of a node
+     *
+     * @param isOrNode       A boolean indicates whether the attacker is to move
+     * @param remainingDepth Number of threats the attacker may still make before the final fours
+     * @param moves          Array receives the cell indexes of the moves
+     * @return Number of the moves, or {@link #PROVEN_LEAF} or {@link #DISPROVEN_LEAF} if the node is decided
+     */
+    private int expand(boolean isOrNode, int remainingDepth, int[] moves) {
+        if (isOrNode) {
+            if (board.solveVcf()) {
+                return PROVEN_LEAF;
+            }
+            //a four of the defender must be blocked, and a double four cannot be
+            int forcedCell = board.findFive(attacker * -1);
+            if (forcedCell == -2 || remainingDepth == 0) {
+                return DISPROVEN_LEAF;
+            }
+            int moveNum = 0;
+            for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+                if ((forcedCell >= 0 && cell != forcedCell) || !board.isEmpty(cell)) {
+                    continue;
+                }
+                if (board.fivePoints(cell, attacker, points) > 0 || board.isPotentialThreat(cell)) {
+                    moves[moveNum++] = cell;
+                }
+            }
+            return moveNum == 0 ? DISPROVEN_LEAF : moveNum;
+        }
+
+        //the defender to move has no four, since the attacker blocked it
+        int fivePoint = board.findFive(attacker);
+        if (fivePoint == -2) {
+            return PROVEN_LEAF;
+        }
+        if (fivePoint >= 0) {
+            moves[0] = fivePoint;
+            return 1;
+        }
+        int defenceNum = board.threeDefences(board.getLastMove(), moves);
+        if (defenceNum < 0) {
+            return DISPROVEN_LEAF;
+        }
+        return defenceNum == 0 ? PROVEN_LEAF : defenceNum;
+    }
+
+    /**
+     * Looks up the numbers of a child, a child which is not stored yet counts as a single leaf
+     *
+     * @param isOrNode       A boolean indicates whether the attacker is to move at the child
+     * @param remainingDepth Remaining depth of the child
+     * @param numbers        Array receives the proof and disproof numbers
+     */
+    private void childNumbers(boolean isOrNode, int remainingDepth, int[] numbers) {
+        int slot = table.probe(keyOf(isOrNode, remainingDepth));
+        numbers[0] = slot < 0 ? 1 : table.getProofNumber(slot);
+        numbers[1] = slot < 0 ? 1 : table.getDisproofNumber(slot);
+    }
+
+    /**
+     * Chooses the child followed by the principal line
+     *
+     * @param isOrNode       A boolean indicates whether the attacker is to move at the node
+     * @param remainingDepth Remaining depth of the node
+     * @param moves          Moves of the node
+     * @param moveNum        Number of the moves
+     * @return Index of the move of the child, or -1 if no child is stored
+     */
+    private int principalChild(boolean isOrNode, int remainingDepth, int[] moves, int moveNum) {
+        int mover = isOrNode ? attacker : attacker * -1;
+        int childDepth = isOrNode ? remainingDepth - 1 : remainingDepth;
+        int slot = table.probe(keyOf(isOrNode, remainingDepth));
+        //a solved node of the player to move follows its winning child, the other player follows the most work
+        boolean isWon = slot >= 0 && (isOrNode ? table.getProofNumber(slot) == 0 :
+            table.getDisproofNumber(slot) == 0);
+        boolean isLost = slot >= 0 && (isOrNode ? table.getDisproofNumber(slot) == 0 :
+            table.getProofNumber(slot) == 0);
+        int best = -1;
+        long bestValue = Long.MAX_VALUE;
+        for (int i = 0; i < moveNum; i++) {
+            board.play(moves[i], mover);
+            int childSlot = table.probe(keyOf(!isOrNode, childDepth));
+            board.undo(moves[i], mover);
+            if (childSlot < 0) {
+                continue;
+            }
+            long value = isOrNode ? table.getProofNumber(childSlot) : table.getDisproofNumber(childSlot);
+            if (isLost) {
+                value = -table.getWork(childSlot);
+            } else if (isWon && value != 0) {
+                continue;
+            }
+            if (value < bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Follows the principal children from the root
+     *
+     * @param remainingDepth Remaining depth of the root in the last iteration
+     * @return Cell indexes of the moves of the principal line
+     */
+    private int[] findPrincipalLine(int remainingDepth) {
+        int[] line = new int[BitBoard.CELL_NUM];
+        int length = 0;
+        int played = 0;
+        boolean isOrNode = true;
+        int[] moves = new int[BitBoard.CELL_NUM];
+        while (length < BitBoard.CELL_NUM) {
+            int moveNum = expand(isOrNode, remainingDepth, moves);
+            if (moveNum < 0) {
+                //a proven leaf of the attacker to move is the start of a victory by continuous fours
+                if (moveNum == PROVEN_LEAF && isOrNode) {
+                    int[] vcfLine = board.getVcfLine();
+                    int vcfLength = Math.min(vcfLine.length, line.length - length);
+                    System.arraycopy(vcfLine, 0, line, length, vcfLength);
+                    length += vcfLength;
+                }
+                break;
+            }
+            int best = principalChild(isOrNode, remainingDepth, moves, moveNum);
+            int move;
+            if (best >= 0) {
+                move = moves[best];
+            } else if (length == 0 && proofNumber == 0 && rootWinningMove >= 0) {
+                move = rootWinningMove;
+            } else {
+                break;
+            }
+            board.play(move, isOrNode ? attacker : attacker * -1);
+            line[length++] = move;
+            played++;
+            remainingDepth -= isOrNode ? 1 : 0;
+            isOrNode = !isOrNode;
+        }
+        for (int i = played - 1; i >= 0; i--) {
+            board.undo(line[i], i % 2 == 0 ? attacker : attacker * -1);
+        }
+        int[] result = new int[length];
+        System.arraycopy(line, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Returns the index of the buffers of a node, an AND node has the remaining depth of its OR children
+     *
+     * @param isOrNode       A boolean indicates whether the attacker is to move
+     * @param remainingDepth Remaining depth of the node
+     * @return Index of the buffers
+     */
+    private static int bufferIndex(boolean isOrNode, int remainingDepth) {
+        return 2 * remainingDepth + (isOrNode ? 0 : 1);
+    }
+
+    /**
+     * Returns the key of the current node
+     *
+     * @param isOrNode       A boolean indicates whether the attacker is to move
+     * @param remainingDepth Remaining depth of the node
+     * @return Key of the node in the table
+     */
+    private long keyOf(boolean isOrNode, int remainingDepth) {
+        long salt = 2 * remainingDepth + (attacker == 1 ? 1 : 2);
+        return board.getHash() ^ ZobristKeys.turnKey(isOrNode ? attacker : attacker * -1) ^ salt * DEPTH_KEY;
+    }
+}
@@ -0,0 +1,206 @@
+package ai.utility;
+
+/**
+ * This class is a fixed-size table of the nodes of a proof-number search.
+ * <p>
+ * An entry is the key of a node with its proof number, disproof number and work, the number of nodes searched below
+ * it. Entries are grouped into buckets, and a new node takes an empty slot of its bucket or replaces the entry with
+ * the least work. Once the table is nearly full the garbage collection empties it down to a target fill: first the
+ * entries marked as collectable, the nodes of solved subtrees which are not on the principal line, and then the
+ * entries with the least work, which are the cheapest to search again.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class ProofNumberTable {
+    /**
+     * Proof number of a disproven node and disproof number of a proven node, two of them can be added without
+     * overflow
+     */
+    public static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private static final int BUCKET_SIZE = 4;
+
+    /**
+     * Bytes of one entry, the key, the two numbers, the work and the collectable mark
+     */
+    private static final int ENTRY_BYTES = Long.BYTES + 2 * Integer.BYTES + Long.BYTES + 1;
+
+    /**
+     * Fill ratios starting and ending the garbage collection
+     */
+    private static final double GC_START_RATIO = 0.9;
+
+    private static final double GC_TARGET_RATIO = 0.6;
+
+    private final long[] keys;
+
+    private final int[] proofNumbers;
+
+    private final int[] disproofNumbers;
+
+    private final long[] works;
+
+    private final boolean[] isCollectable;
+
+    private final int bucketMask;
+
+    private int size;
+
+    private int collections;
+
+    /**
+     * Creates a table of the given size, the number of buckets is rounded down to a power of 2
+     *
+     * @param sizeInMb Size of the table in megabytes
+     */
+    public ProofNumberTable(int sizeInMb) {
+        if (sizeInMb < TranspositionTable.MIN_SIZE_MB || sizeInMb > TranspositionTable.MAX_SIZE_MB) {
+            throw new IllegalArgumentException("Table size must be between " + TranspositionTable.MIN_SIZE_MB
+                + " and " + TranspositionTable.MAX_SIZE_MB + " MB: " + sizeInMb);
+        }
+        long buckets = Long.highestOneBit((long)sizeInMb * 1024 * 1024 / (BUCKET_SIZE * ENTRY_BYTES));
+        int capacity = (int)buckets * BUCKET_SIZE;
+        bucketMask = (int)buckets - 1;
+        keys = new long[capacity];
+        proofNumbers = new int[capacity];
+        disproofNumbers = new int[capacity];
+        works = new long[capacity];
+        isCollectable = new boolean[capacity];
+    }
+
+    /**
+     * Looks up a node
+     *
+     * @param key Key of the node
+     * @return Slot of the node, or -1 if it is not stored. A slot is valid until the next store
+     */
+    public int probe(long key) {
+        int first = bucketOf(key);
+        for (int slot = first; slot < first + BUCKET_SIZE; slot++) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public int getProofNumber(int slot) {
+        return proofNumbers[slot];
+    }
+
+    public int getDisproofNumber(int slot) {
+        return disproofNumbers[slot];
+    }
+
+    public long getWork(int slot) {
+        return works[slot];
+    }
+
+    /**
+     * Stores the numbers of a node, the collectable mark of the node is removed
+     *
+     * @param key             Key of the node
+     * @param proofNumber     Proof number of the node
+     * @param disproofNumber  Disproof number of the node
+     * @param work            Number of nodes searched below the node
+     */
+    public void store(long key, int proofNumber, int disproofNumber, long work) {
+        int slot = probe(key);
+        if (slot < 0) {
+            if (size >= GC_START_RATIO * keys.length) {
+                collectGarbage();
+            }
+            slot = replacementSlot(key);
+            if (keys[slot] == 0) {
+                size++;
+            }
+            keys[slot] = key;
+        }
+        proofNumbers[slot] = proofNumber;
+        disproofNumbers[slot] = disproofNumber;
+        works[slot] = work;
+        isCollectable[slot] = false;
+    }
+
+    /**
+     * Marks a node as the first to be removed by the garbage collection
+     *
+     * @param key Key of the node
+     */
+    public void markCollectable(long key) {
+        int slot = probe(key);
+        if (slot >= 0) {
+            isCollectable[slot] = true;
+        }
+    }
+
+    /**
+     * Returns the number of stored nodes
+     *
+     * @return Number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of garbage collections since the table is created
+     *
+     * @return Number of collections
+     */
+    public int getCollections() {
+        return collections;
+    }
+
+    /**
+     * Removes the collectable entries, and then the entries with the least work, until the table is filled to
+     * {@link #GC_TARGET_RATIO}
+     */
+    private void collectGarbage() {
+        collections++;
+        int target = (int)(GC_TARGET_RATIO * keys.length);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0 && isCollectable[slot]) {
+                remove(slot);
+            }
+        }
+        for (long maxWork = 1; size > target; maxWork *= 2) {
+            for (int slot = 0; slot < keys.length && size > target; slot++) {
+                if (keys[slot] != 0 && works[slot] <= maxWork) {
+                    remove(slot);
+                }
+            }
+        }
+    }
+
+    private void remove(int slot) {
+        keys[slot] = 0;
+        works[slot] = 0;
+        isCollectable[slot] = false;
+        size--;
+    }
+
+    /**
+     * Chooses the slot of a new node: an empty slot, a collectable entry or the entry with the least work
+     */
+    private int replacementSlot(long key) {
+        int first = bucketOf(key);
+        int replaced = first;
+        for (int slot = first; slot < first + BUCKET_SIZE; slot++) {
+            if (keys[slot] == 0) {
+                return slot;
+            }
+            if (isCollectable[slot] && !isCollectable[replaced]) {
+                replaced = slot;
+            } else if (isCollectable[slot] == isCollectable[replaced] && works[slot] < works[replaced]) {
+                replaced = slot;
+            }
+        }
+        return replaced;
+    }
+
+    private int bucketOf(long key) {
+        return ((int)(key ^ (key >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+}
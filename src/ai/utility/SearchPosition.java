@@ -0,0 +1,236 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+/**
+ * This class is a mutable game position used by the search agents.
+ * <p>
+ * Instead of copying the chessboard for every child node, a search plays a move with {@link #makeMove} before
+ * visiting the child and takes it back with {@link #unmakeMove} afterwards. The 2-dimensional chessboard and the
+ * bitboard are updated in place and always hold the same stones, so both the string based heuristics and the
+ * bitboard based code can read the position.
+ *
+ * @author Cirun Zhang
+ * @version 1.1
+ */
+public class SearchPosition {
+    /**
+     * Maximum number of last moves whose lines are collected
+     */
+    public static final int RECENT_MOVE_NUM = 2;
+
+    /**
+     * Private copy of the chessboard, mutated in place
+     */
+    private final int[][] chess;
+
+    /**
+     * Bitboard of the same chessboard
+     */
+    private final BitBoard board;
+
+    /**
+     * Whole-board heuristic maintained along with the bitboard
+     */
+    private final IncrementalEvaluator evaluator;
+
+    /**
+     * Candidate moves maintained along with the bitboard
+     */
+    private final CandidateFrontier frontier;
+
+    /**
+     * Move ordering scores maintained along with the bitboard
+     */
+    private final MoveScoreCache moveScores;
+
+    /**
+     * Zobrist hash of the position, see {@link ZobristKeys}
+     */
+    private long hash;
+
+    /**
+     * Cell indexes of the played moves, the top of the stack is the last move
+     */
+    private final int[] moveStack = new int[BitBoard.CELL_NUM];
+
+    private int moveCount;
+
+    /**
+     * Reusable move lists of each ply, indexed by the number of moves made
+     */
+    private final MoveList[] moveLists = new MoveList[BitBoard.CELL_NUM + 1];
+
+    /**
+     * Reusable cell buffers of each ply, indexed by the number of moves made
+     */
+    private final int[][] cellBuffers = new int[BitBoard.CELL_NUM + 1][];
+
+    private final int[] recentLines = new int[RECENT_MOVE_NUM * BitBoard.DIRECTION_NUM];
+
+    /**
+     * History heuristic of the searches on this position
+     */
+    private final HistoryTable history = new HistoryTable();
+
+    /**
+     * Creates a search position from a chessboard, the chessboard itself is not modified by the search
+     *
+     * @param chess 2-dimensional array represents the chessboard
+     */
+    public SearchPosition(int[][] chess) {
+        this.chess = AiUtils.copyArray(chess);
+        this.board = BitBoard.fromChessboard(chess);
+        this.evaluator = new IncrementalEvaluator(board);
+        this.frontier = new CandidateFrontier(board);
+        this.moveScores = new MoveScoreCache(board);
+        this.hash = ZobristKeys.hash(chess);
+    }
+
+    /**
+     * Places a stone and pushes it onto the move stack
+     *
+     * @param x         X coordinate of the move
+     * @param y         Y coordinate of the move
+     * @param pieceType Type of the piece, 1 for black and -1 for white
+     */
+    public void makeMove(int x, int y, int pieceType) {
+        chess[x][y] = pieceType;
+        board.set(x, y, pieceType);
+        evaluator.update(x, y);
+        frontier.placeStone(x, y);
+        moveScores.update(x, y);
+        hash ^= ZobristKeys.key(BitBoard.cellIndex(x, y), pieceType);
+        moveStack[moveCount++] = BitBoard.cellIndex(x, y);
+    }
+
+    /**
+     * Takes back the last move made by {@link #makeMove}
+     */
+    public void unmakeMove() {
+        int cell = moveStack[--moveCount];
+        int x = BitBoard.cellX(cell);
+        int y = BitBoard.cellY(cell);
+        board.clear(x, y);
+        evaluator.update(x, y);
+        frontier.removeStone(x, y);
+        moveScores.update(x, y);
+        hash ^= ZobristKeys.key(cell, chess[x][y]);
+        chess[x][y] = AiConst.EMPTY_STONE;
+    }
+
+    /**
+     * Returns the chessboard of the position, it changes with every make and unmake
+     *
+     * @return 2-dimensional array represents the chessboard
+     */
+    public int[][] getChess() {
+        return chess;
+    }
+
+    public BitBoard getBoard() {
+        return board;
+    }
+
+    public IncrementalEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public CandidateFrontier getFrontier() {
+        return frontier;
+    }
+
+    public MoveScoreCache getMoveScores() {
+        return moveScores;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public HistoryTable getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns the move list of the current ply, it is shared by all nodes of the same ply, so it must not be used
+     * after the move of the ply is taken back
+     *
+     * @return Move list with space for every empty tile plus one
+     */
+    public MoveList getMoveList() {
+        if (moveLists[moveCount] == null) {
+            moveLists[moveCount] = new MoveList(BitBoard.CELL_NUM + 1);
+        }
+        return moveLists[moveCount];
+    }
+
+    /**
+     * Returns the cell buffer of the current ply, it is shared by all nodes of the same ply as {@link #getMoveList}
+     *
+     * @return Array with space for every tile
+     */
+    public int[] getCellBuffer() {
+        if (cellBuffers[moveCount] == null) {
+            cellBuffers[moveCount] = new int[BitBoard.CELL_NUM];
+        }
+        return cellBuffers[moveCount];
+    }
+
+    /**
+     * Collects the lines through the last moves into {@link #getRecentLines}, the other lines are unchanged since
+     * those moves
+     *
+     * @param moveNum Number of the last moves, at most {@link #RECENT_MOVE_NUM}
+     * @return Number of the distinct lines
+     */
+    public int collectRecentLines(int moveNum) {
+        int lineNum = 0;
+        for (int i = Math.max(0, moveCount - moveNum); i < moveCount; i++) {
+            for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+                int line = BitBoard.lineOf(direction, moveStack[i]);
+                if (!VcfSolver.contains(recentLines, lineNum, line)) {
+                    recentLines[lineNum++] = line;
+                }
+            }
+        }
+        return lineNum;
+    }
+
+    /**
+     * Returns the lines of the last {@link #collectRecentLines}, they must be used before the next collection
+     *
+     * @return Line indexes
+     */
+    public int[] getRecentLines() {
+        return recentLines;
+    }
+
+    /**
+     * Returns the number of moves on the move stack
+     *
+     * @return Number of moves made since the position is created
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Returns the cell index of the last move, or -1 if no move has been made
+     *
+     * @return Cell index of the last move
+     */
+    public int getLastMove() {
+        return moveCount == 0 ? -1 : moveStack[moveCount - 1];
+    }
+
+    /**
+     * Determines whether the last move forms five in line
+     *
+     * @return A boolean indicates whether the last move wins the game
+     */
+    public boolean isLastMoveWinning() {
+        int cell = getLastMove();
+        return cell >= 0 && board.isFiveInLine(BitBoard.cellX(cell), BitBoard.cellY(cell));
+    }
+}
@@ -0,0 +1,357 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+import java.util.Arrays;
+
+/**
+ * This class is the bitboard of a threat search of one attacker.
+ * <p>
+ * Moves of both players are played with the Zobrist hash of the stones. The attacker threatens with fours and open
+ * threes, the gain squares of the threes are found by the potential threat patterns of {@link AiConst}. A four has a
+ * single defence, blocking it. A three is a threat only if the attacker wins by continuous fours when the defender
+ * ignores it, and then every legal move of the defender is a defence which must be refuted. The blocks found by the
+ * defensive patterns of {@link AiConst} come first, then the moves on that line of fours, the fours of the defender
+ * and any other move which breaks the line of fours. The remaining moves are refuted by the line itself.
+ *
+ * @author Cirun Zhang
+ * @version 1.1
+ */
+class ThreatBoard {
+    /**
+     * Potential threat patterns compiled into one matcher, the gain square is the tile of the threat
+     */
+    private static final PatternMatcher POTENTIAL_THREATS = new PatternMatcher(AiConst.POTENTIAL_THREAT_A,
+        AiConst.POTENTIAL_THREAT_B, AiConst.POTENTIAL_THREAT_C, AiConst.POTENTIAL_THREAT_D, AiConst.POTENTIAL_THREAT_E,
+        AiConst.POTENTIAL_THREAT_F, AiConst.POTENTIAL_THREAT_G, AiConst.POTENTIAL_THREAT_H, AiConst.POTENTIAL_THREAT_I,
+        AiConst.POTENTIAL_THREAT_J, AiConst.POTENTIAL_THREAT_K, AiConst.POTENTIAL_THREAT_L,
+        AiConst.POTENTIAL_THREAT_M);
+
+    /**
+     * Defensive patterns compiled into one matcher, bits 0-1 for the A group, 2-3 for B, 4-9 for C and 10-11 for D
+     */
+    private static final PatternMatcher DEFENSE_THREATS = new PatternMatcher(AiConst.DEFENSE_THREAT_A1,
+        AiConst.DEFENSE_THREAT_A2, AiConst.DEFENSE_THREAT_B1, AiConst.DEFENSE_THREAT_B2, AiConst.DEFENSE_THREAT_C1,
+        AiConst.DEFENSE_THREAT_C2, AiConst.DEFENSE_THREAT_C3, AiConst.DEFENSE_THREAT_C4, AiConst.DEFENSE_THREAT_C5,
+        AiConst.DEFENSE_THREAT_C6, AiConst.DEFENSE_THREAT_D1, AiConst.DEFENSE_THREAT_D2);
+
+    /**
+     * Pattern ids of each defensive group of {@link #DEFENSE_THREATS}, from the most to the least urgent
+     */
+    private static final long[] DEFENSE_THREAT_GROUPS = {0x3L, 0xCL, 0x3F0L, 0xC00L};
+
+    /**
+     * Number of tiles on each side of a threat which may block it
+     */
+    private static final int BLOCK_RADIUS = 4;
+
+    private final BitBoard board;
+
+    /**
+     * Zobrist hash of the stones
+     */
+    private long hash;
+
+    private final int attacker;
+
+    private final VcfSolver vcfSolver;
+
+    private final int[] points = new int[VcfSolver.MAX_FIVE_POINTS];
+
+    /**
+     * Buffers of the pattern matching, a window of the string format and the blocks of a three with their patterns
+     */
+    private final char[] window = new char[2 * ChessboardScanUtils.RADIUS_10 + 1];
+
+    private final int[] blocks = new int[2 * BLOCK_RADIUS * BitBoard.DIRECTION_NUM];
+
+    private final long[] blockPatterns = new long[blocks.length];
+
+    private final boolean[] isNearLine = new boolean[BitBoard.CELL_NUM];
+
+    /**
+     * Moves played on the board in order
+     */
+    private final int[] playedMoves = new int[BitBoard.CELL_NUM];
+
+    private int playedNum;
+
+    /**
+     * Creates the board of a threat search
+     *
+     * @param chess     2-dimension array represents the chessboard
+     * @param attacker  Type of the attacker, 1 for black and -1 for white
+     * @param vcfSolver Solver of the victories by continuous fours of the attacker
+     */
+    ThreatBoard(int[][] chess, int attacker, VcfSolver vcfSolver) {
+        this.board = BitBoard.fromChessboard(chess);
+        this.hash = ZobristKeys.hash(chess);
+        this.attacker = attacker;
+        this.vcfSolver = vcfSolver;
+    }
+
+    int getAttacker() {
+        return attacker;
+    }
+
+    long getHash() {
+        return hash;
+    }
+
+    boolean isEmpty(int cell) {
+        return board.isEmpty(BitBoard.cellX(cell), BitBoard.cellY(cell));
+    }
+
+    /**
+     * Returns the last move played on the board
+     *
+     * @return Cell index of the move, or -1 if no move is played
+     */
+    int getLastMove() {
+        return playedNum == 0 ? -1 : playedMoves[playedNum - 1];
+    }
+
+    void play(int cell, int pieceType) {
+        board.set(BitBoard.cellX(cell), BitBoard.cellY(cell), pieceType);
+        hash ^= ZobristKeys.key(cell, pieceType);
+        playedMoves[playedNum++] = cell;
+    }
+
+    void undo(int cell, int pieceType) {
+        board.clear(BitBoard.cellX(cell), BitBoard.cellY(cell));
+        hash ^= ZobristKeys.key(cell, pieceType);
+        playedNum--;
+    }
+
+    /**
+     * Collects the empty tiles which complete five together with a stone on a tile
+     *
+     * @param cell      Cell index of the tile, it counts as a stone of the player whether it is taken or not
+     * @param pieceType Type of the piece of the player
+     * @param points    Array receives the distinct cell indexes of the tiles
+     * @return Number of the tiles, 0 if the stone makes no four
+     */
+    int fivePoints(int cell, int pieceType, int[] points) {
+        return VcfSolver.fivePoints(board, cell, pieceType, points);
+    }
+
+    /**
+     * Finds the empty tile on which a player makes five
+     *
+     * @param pieceType Type of the piece of the player
+     * @return Cell index of the tile, -1 if there is no such tile and -2 if there are more than one
+     */
+    int findFive(int pieceType) {
+        int fivePoint = -1;
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if (!isEmpty(cell)) {
+                continue;
+            }
+            int x = BitBoard.cellX(cell);
+            int y = BitBoard.cellY(cell);
+            board.set(x, y, pieceType);
+            boolean isFive = board.isFiveInLine(x, y);
+            board.clear(x, y);
+            if (isFive) {
+                if (fivePoint >= 0) {
+                    return -2;
+                }
+                fivePoint = cell;
+            }
+        }
+        return fivePoint;
+    }
+
+    /**
+     * Determines whether an empty tile is a gain square of the attacker, i.e. a stone on it matches a potential
+     * threat pattern
+     *
+     * @param cell Cell index of the tile
+     * @return A boolean indicates whether the move makes a three or a four
+     */
+    boolean isPotentialThreat(int cell) {
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            if (POTENTIAL_THREATS.matchesAny(window, window(cell, direction))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Searches a victory by continuous fours of the attacker, who moves next
+     *
+     * @return A boolean indicates whether a winning line is found, it is kept by {@link #getVcfLine}
+     */
+    boolean solveVcf() {
+        return vcfSolver.solve(board, hash, attacker);
+    }
+
+    int[] getVcfLine() {
+        return vcfSolver.getWinningLine();
+    }
+
+    /**
+     * Finds the defences against a three of the attacker which is just played, the blocks of the most urgent
+     * defensive pattern group come first
+     *
+     * @param threat   Cell index of the three
+     * @param defences Array receives the cell indexes of the defences
+     * @return Number of the defences, or -1 if the three is not a threat since the attacker cannot win by fours
+     *     after a pass of the defender
+     */
+    int threeDefences(int threat, int[] defences) {
+        if (!solveVcf()) {
+            return -1;
+        }
+        int[] threatLine = getVcfLine();
+        markNearLine(threatLine);
+
+        int defenceNum = blocks(threat, defences);
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if (!isEmpty(cell) || VcfSolver.contains(defences, defenceNum, cell)) {
+                continue;
+            }
+            //a move which shares no window of five with the line cannot break it
+            if (VcfSolver.contains(threatLine, threatLine.length, cell)
+                || fivePoints(cell, attacker * -1, points) > 0 || (isNearLine[cell] && !isThreatLineKept(threatLine,
+                cell))) {
+                defences[defenceNum++] = cell;
+            }
+        }
+        return defenceNum;
+    }
+
+    /**
+     * Determines whether a line of fours still wins after a move of the defender
+     *
+     * @param threatLine Winning line of fours with the attacker to move
+     * @param defence    Cell index of the move of the defender, it is not on the line and makes no four
+     * @return A boolean indicates whether the line is not broken by the move
+     */
+    private boolean isThreatLineKept(int[] threatLine, int defence) {
+        play(defence, attacker * -1);
+        int played = 0;
+        boolean isKept = false;
+        int forcedCell = -1;
+        for (int i = 0; i < threatLine.length; i += 2) {
+            int cell = threatLine[i];
+            if (forcedCell >= 0 && cell != forcedCell) {
+                break;
+            }
+            int pointNum = fivePoints(cell, attacker, points);
+            if (i == threatLine.length - 1) {
+                isKept = pointNum >= 2;
+                break;
+            }
+            if (pointNum != 1 || points[0] != threatLine[i + 1]) {
+                break;
+            }
+            play(cell, attacker);
+            play(threatLine[i + 1], attacker * -1);
+            played += 2;
+            int defenderPointNum = fivePoints(threatLine[i + 1], attacker * -1, points);
+            if (defenderPointNum >= 2) {
+                break;
+            }
+            forcedCell = defenderPointNum == 1 ? points[0] : -1;
+        }
+        for (int i = played - 1; i >= 0; i--) {
+            undo(threatLine[i], i % 2 == 0 ? attacker : attacker * -1);
+        }
+        undo(defence, attacker * -1);
+        return isKept;
+    }
+
+    /**
+     * Finds the blocks of a three, the empty tiles near the three on its lines which match the most urgent group of
+     * the defensive patterns
+     *
+     * @param threat Cell index of the three
+     * @param moves  Array receives the cell indexes of the blocks
+     * @return Number of the blocks
+     */
+    private int blocks(int threat, int[] moves) {
+        int candidateNum = 0;
+        int x = BitBoard.cellX(threat);
+        int y = BitBoard.cellY(threat);
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            int[] step = BitBoard.DIRECTION_STEPS[direction];
+            for (int i = -BLOCK_RADIUS; i <= BLOCK_RADIUS; i++) {
+                int blockX = x + i * step[0];
+                int blockY = y + i * step[1];
+                if (i == 0 || !BitBoard.isInside(blockX, blockY) || !board.isEmpty(blockX, blockY)) {
+                    continue;
+                }
+                int cell = BitBoard.cellIndex(blockX, blockY);
+                long patterns = DEFENSE_THREATS.match(window, window(cell, direction));
+                if (patterns != 0) {
+                    blocks[candidateNum] = cell;
+                    blockPatterns[candidateNum++] = patterns;
+                }
+            }
+        }
+
+        //takes the moves of the most urgent group only
+        int blockNum = 0;
+        for (long group : DEFENSE_THREAT_GROUPS) {
+            for (int i = 0; i < candidateNum; i++) {
+                if ((blockPatterns[i] & group) != 0 && !VcfSolver.contains(moves, blockNum, blocks[i])) {
+                    moves[blockNum++] = blocks[i];
+                }
+            }
+            if (blockNum > 0) {
+                break;
+            }
+        }
+        return blockNum;
+    }
+
+    /**
+     * Writes the window of an empty tile in the string format of the patterns into {@link #window}, from the view of
+     * the attacker with 't' for the tile, tiles outside the chessboard are skipped
+     *
+     * @param cell      Cell index of the tile
+     * @param direction Direction of the window
+     * @return Number of chars written
+     */
+    private int window(int cell, int direction) {
+        int line = BitBoard.lineOf(direction, cell);
+        int position = BitBoard.positionOf(direction, cell);
+        int ally = board.getLine(attacker, line);
+        int opponent = board.getLine(attacker * -1, line);
+        int first = Math.max(0, position - ChessboardScanUtils.RADIUS_10);
+        int last = Math.min(BitBoard.lineLength(line) - 1, position + ChessboardScanUtils.RADIUS_10);
+        int length = 0;
+        for (int i = first; i <= last; i++) {
+            if (i == position) {
+                window[length++] = 't';
+            } else if ((ally >>> i & 1) != 0) {
+                window[length++] = '1';
+            } else {
+                window[length++] = (opponent >>> i & 1) != 0 ? '2' : '0';
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Marks the tiles within four tiles of a move of a line in any direction in {@link #isNearLine}
+     *
+     * @param line Cell indexes of the moves
+     */
+    private void markNearLine(int[] line) {
+        Arrays.fill(isNearLine, false);
+        for (int cell : line) {
+            int x = BitBoard.cellX(cell);
+            int y = BitBoard.cellY(cell);
+            for (int[] step : BitBoard.DIRECTION_STEPS) {
+                for (int i = -4; i <= 4; i++) {
+                    if (BitBoard.isInside(x + i * step[0], y + i * step[1])) {
+                        isNearLine[BitBoard.cellIndex(x + i * step[0], y + i * step[1])] = true;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package ai.utility;
+
+import java.util.Arrays;
+
+/**
+ * This class is a fixed-size transposition table of primitive entries.
+ * <p>
+ * Entries are grouped into buckets of two: the first slot is depth-preferred, it is only replaced by a result of an
+ * equal or deeper search, or by any result once the entry is left from an earlier search. The second slot is
+ * always replaced. An entry is a 64-bit key and a 64-bit data word packing the score, the remaining depth, the
+ * bound type, the best move and the age of the entry. Scores are from the view of the player to move.
+ * <p>
+ * The table is shared by search threads without locks. The key word of an entry holds the key XOR the data word,
+ * so an entry torn by two threads writing at the same time no longer matches its key and is ignored by
+ * {@link #probe}. The data word is read once and decoded by the static getters.
+ *
+ * @author Cirun Zhang
+ * @version 1.1
+ */
+public class TranspositionTable {
+    /**
+     * Bound types of the stored score, 0 marks an empty entry
+     */
+    public static final int EXACT = 1;
+
+    public static final int LOWER_BOUND = 2;
+
+    public static final int UPPER_BOUND = 3;
+
+    /**
+     * Size limits of the table in megabytes
+     */
+    public static final int MIN_SIZE_MB = 1;
+
+    public static final int MAX_SIZE_MB = 1024;
+
+    /**
+     * Bytes of one bucket, two entries of a key and a data word
+     */
+    private static final int BUCKET_BYTES = 2 * 2 * Long.BYTES;
+
+    /**
+     * Layout of the data word: score in bits 0-31, depth in 32-39, bound in 40-41, best move + 1 in 42-50 and age
+     * in 51-58
+     */
+    private static final int DEPTH_SHIFT = 32;
+
+    private static final int BOUND_SHIFT = 40;
+
+    private static final int MOVE_SHIFT = 42;
+
+    private static final int AGE_SHIFT = 51;
+
+    private static final long BYTE_MASK = 0xFF;
+
+    private final long[] keys;
+
+    private final long[] data;
+
+    /**
+     * Mask of the bucket index
+     */
+    private final int bucketMask;
+
+    /**
+     * Age of the current search, entries of other ages are replaceable
+     */
+    private int age;
+
+    /**
+     * Allocates a table
+     *
+     * @param sizeInMb Size of the table in megabytes, from {@link #MIN_SIZE_MB} to {@link #MAX_SIZE_MB}, the number
+     *                 of buckets is rounded down to a power of two
+     */
+    public TranspositionTable(int sizeInMb) {
+        if (sizeInMb < MIN_SIZE_MB || sizeInMb > MAX_SIZE_MB) {
+            throw new IllegalArgumentException("Table size must be between " + MIN_SIZE_MB + " and " + MAX_SIZE_MB
+                + " MB: " + sizeInMb);
+        }
+        int buckets = Integer.highestOneBit((int)((long)sizeInMb * 1024 * 1024 / BUCKET_BYTES));
+        this.keys = new long[2 * buckets];
+        this.data = new long[2 * buckets];
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * Starts a new search, the entries of earlier searches can be replaced from now on
+     */
+    public void newSearch() {
+        age = (age + 1) & (int)BYTE_MASK;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key Hash of the position
+     * @return Data word of the entry, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int slot = bucketOf(key);
+        for (int i = slot; i < slot + 2; i++) {
+            long entry = data[i];
+            if (entry != 0 && (keys[i] ^ entry) == key) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search
+     *
+     * @param key      Hash of the position
+     * @param depth    Remaining depth of the search, from 0 to 255
+     * @param score    Score from the view of the player to move
+     * @param bound    {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     * @param bestMove Cell index of the best move, or -1 if unknown
+     */
+    public void store(long key, int depth, int score, int bound, int bestMove) {
+        int slot = bucketOf(key);
+        long preferred = data[slot];
+        if (preferred != 0 && (keys[slot] ^ preferred) != key && getAge(preferred) == age
+            && getDepth(preferred) > depth) {
+            //keeps the deeper result, the second slot is always replaced
+            slot++;
+        }
+        long entry = (score & 0xFFFFFFFFL) | ((long)depth << DEPTH_SHIFT) | ((long)bound << BOUND_SHIFT)
+            | ((long)(bestMove + 1) << MOVE_SHIFT) | ((long)age << AGE_SHIFT);
+        keys[slot] = key ^ entry;
+        data[slot] = entry;
+    }
+
+    public static int getScore(long entry) {
+        return (int)entry;
+    }
+
+    public static int getDepth(long entry) {
+        return (int)((entry >>> DEPTH_SHIFT) & BYTE_MASK);
+    }
+
+    public static int getBound(long entry) {
+        return (int)(entry >>> BOUND_SHIFT) & 3;
+    }
+
+    /**
+     * Returns the best move of an entry
+     *
+     * @param entry Data word of the entry
+     * @return Cell index of the best move, or -1 if unknown
+     */
+    public static int getBestMove(long entry) {
+        return (int)((entry >>> MOVE_SHIFT) & 0x1FF) - 1;
+    }
+
+    /**
+     * Counts the non-empty entries, the count is approximate while other threads are writing
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        int occupied = 0;
+        for (long entry : data) {
+            if (entry != 0) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Returns the bound type seen by the other player, a lower bound for one player is an upper bound for the
+     * other
+     *
+     * @param bound Bound type
+     * @return Bound type of the negated score
+     */
+    public static int flipBound(int bound) {
+        switch (bound) {
+            case LOWER_BOUND:
+                return UPPER_BOUND;
+            case UPPER_BOUND:
+                return LOWER_BOUND;
+            default:
+                return bound;
+        }
+    }
+
+    private int bucketOf(long key) {
+        return 2 * ((int)(key ^ (key >>> 32)) & bucketMask);
+    }
+
+    private static int getAge(long data) {
+        return (int)((data >>> AGE_SHIFT) & BYTE_MASK);
+    }
+}
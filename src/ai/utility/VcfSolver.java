@@ -0,0 +1,286 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+/**
+ * This class is a solver of victory by continuous fours (VCF).
+ * <p>
+ * Only moves which make a four are searched for the attacker, and the defender has a single reply to each of them,
+ * blocking the four. A four which can be completed on two tiles wins, and a branch ends when no four is left, so the
+ * tree is narrow and wins many moves deep are found in a few milliseconds. If a reply of the defender makes a four
+ * of the defender, the next move of the attacker must block it and make a four at the same time.
+ * <p>
+ * Positions which are proven not to win within the remaining depth are kept in the hash table of the solver, the
+ * same stones are often reached by the same fours played in a different order.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class VcfSolver {
+    /**
+     * Number of entries of the hash table, a power of 2
+     */
+    private static final int TABLE_SIZE = 1 << 16;
+
+    /**
+     * Maximum number of distinct tiles completing five around one stone
+     */
+    static final int MAX_FIVE_POINTS = 16;
+
+    /**
+     * Cell index difference between neighbour cells of a line, indexed by direction
+     */
+    private static final int[] CELL_STEPS = new int[BitBoard.DIRECTION_NUM];
+
+    static {
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            CELL_STEPS[direction] =
+                BitBoard.DIRECTION_STEPS[direction][0] * BitBoard.SIZE + BitBoard.DIRECTION_STEPS[direction][1];
+        }
+    }
+
+    /**
+     * Hash table of failed positions, the key of a position with the attacker to move and the remaining depth it
+     * failed with, 0 for an empty entry
+     */
+    private final long[] keys = new long[TABLE_SIZE];
+
+    private final int[] depths = new int[TABLE_SIZE];
+
+    private BitBoard board;
+
+    private long hash;
+
+    private int attacker;
+
+    private int nodes;
+
+    /**
+     * Number of solves stopped by {@link AiConst#VCF_NODE_LIMIT}, counted across solves
+     */
+    private long cutSolves;
+
+    /**
+     * Winning line of the last solve in cell indexes, the moves of the attacker and the defender alternate
+     */
+    private final int[] winningLine = new int[2 * AiConst.VCF_MAXIMUM_DEPTH + 1];
+
+    private int lineLength;
+
+    /**
+     * Searches a victory by continuous fours
+     *
+     * @param chess     2-dimension array represents the chessboard
+     * @param pieceType Type of the attacker which moves next, 1 for black and -1 for white
+     * @return A boolean indicates whether a winning line is found, it is kept by {@link #getWinningLine}
+     */
+    public boolean solve(int[][] chess, int pieceType) {
+        return solve(BitBoard.fromChessboard(chess), ZobristKeys.hash(chess), pieceType);
+    }
+
+    /**
+     * Searches a victory by continuous fours on a bitboard of the caller, the bitboard is restored before returning
+     *
+     * @param board     The bitboard
+     * @param hash      Zobrist hash of the stones of the bitboard
+     * @param pieceType Type of the attacker which moves next
+     * @return A boolean indicates whether a winning line is found
+     */
+    boolean solve(BitBoard board, long hash, int pieceType) {
+        this.board = board;
+        this.hash = hash ^ ZobristKeys.turnKey(pieceType);
+        attacker = pieceType;
+        nodes = 0;
+        lineLength = 0;
+
+        //wins at once
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if (isFivePoint(cell, attacker)) {
+                winningLine[0] = cell;
+                lineLength = 1;
+                return true;
+            }
+        }
+
+        //a four of the defender must be blocked first
+        int forcedCell = -1;
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if (isFivePoint(cell, attacker * -1)) {
+                if (forcedCell >= 0) {
+                    return false;
+                }
+                forcedCell = cell;
+            }
+        }
+
+        boolean isWin = vcf(forcedCell, AiConst.VCF_MAXIMUM_DEPTH);
+        if (!isWin && nodes > AiConst.VCF_NODE_LIMIT) {
+            cutSolves++;
+        }
+        return isWin;
+    }
+
+    /**
+     * Returns the winning line of the last successful solve
+     *
+     * @return Cell indexes of the moves from the first move of the attacker to the four which cannot be blocked
+     */
+    public int[] getWinningLine() {
+        int[] line = new int[lineLength];
+        System.arraycopy(winningLine, 0, line, 0, lineLength);
+        return line;
+    }
+
+    /**
+     * Returns the number of nodes searched by the last solve
+     *
+     * @return Number of nodes
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of solves which failed since they reached the node limit, a failure of a search which
+     * solved fours in between proves nothing if this number changed
+     *
+     * @return Number of the solves since the solver is created
+     */
+    long getCutSolves() {
+        return cutSolves;
+    }
+
+    /**
+     * Depth-first search of fours with the attacker to move
+     *
+     * @param forcedCell     The tile completing a four of the defender which must be taken, or -1
+     * @param remainingDepth Number of fours the attacker may still make
+     * @return A boolean indicates whether the attacker wins
+     */
+    private boolean vcf(int forcedCell, int remainingDepth) {
+        nodes++;
+        if (remainingDepth == 0 || nodes > AiConst.VCF_NODE_LIMIT) {
+            return false;
+        }
+        int index = (int)hash & (TABLE_SIZE - 1);
+        if (keys[index] == hash && depths[index] >= remainingDepth) {
+            return false;
+        }
+
+        int ply = 2 * (AiConst.VCF_MAXIMUM_DEPTH - remainingDepth);
+        int[] points = new int[MAX_FIVE_POINTS];
+        int[] defenderPoints = new int[MAX_FIVE_POINTS];
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if ((forcedCell >= 0 && cell != forcedCell) || !isEmpty(cell)) {
+                continue;
+            }
+            int pointNum = fivePoints(board, cell, attacker, points);
+            if (pointNum == 0) {
+                continue;
+            }
+            if (pointNum >= 2) {
+                //the four cannot be blocked
+                winningLine[ply] = cell;
+                lineLength = ply + 1;
+                return true;
+            }
+
+            int block = points[0];
+            play(cell, attacker);
+            play(block, attacker * -1);
+            int defenderPointNum = fivePoints(board, block, attacker * -1, defenderPoints);
+            boolean isWin = defenderPointNum < 2 && vcf(defenderPointNum == 1 ? defenderPoints[0] : -1,
+                remainingDepth - 1);
+            undo(block, attacker * -1);
+            undo(cell, attacker);
+
+            if (isWin) {
+                winningLine[ply] = cell;
+                winningLine[ply + 1] = block;
+                return true;
+            }
+        }
+
+        //an unfinished search proves nothing
+        if (nodes <= AiConst.VCF_NODE_LIMIT) {
+            keys[index] = hash;
+            depths[index] = remainingDepth;
+        }
+        return false;
+    }
+
+    /**
+     * Collects the empty tiles which complete five together with a stone on a tile
+     *
+     * @param board     The bitboard
+     * @param cell      Cell index of the tile, it counts as a stone of the player whether it is taken or not
+     * @param pieceType Type of the piece of the player
+     * @param points    Array receives the distinct cell indexes of the tiles
+     * @return Number of the tiles, 0 if the stone makes no four and 2 or more if the four cannot be blocked
+     */
+    static int fivePoints(BitBoard board, int cell, int pieceType, int[] points) {
+        int pointNum = 0;
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            int line = BitBoard.lineOf(direction, cell);
+            int position = BitBoard.positionOf(direction, cell);
+            int ally = board.getLine(pieceType, line) | (1 << position);
+            int opponent = board.getLine(pieceType * -1, line);
+            int last = Math.min(position, BitBoard.lineLength(line) - 5);
+            //every window of five tiles covering the stone
+            for (int start = Math.max(position - 4, 0); start <= last; start++) {
+                int window = 0x1F << start;
+                if ((opponent & window) != 0 || Integer.bitCount(ally & window) != 4) {
+                    continue;
+                }
+                int point = BitBoard.lineStart(line)
+                    + Integer.numberOfTrailingZeros(window & ~ally) * CELL_STEPS[direction];
+                if (!contains(points, pointNum, point)) {
+                    points[pointNum++] = point;
+                }
+            }
+        }
+        return pointNum;
+    }
+
+    /**
+     * Determines whether a stone on an empty tile makes five
+     *
+     * @param cell      Cell index of the tile
+     * @param pieceType Type of the piece
+     * @return A boolean indicates whether the stone wins
+     */
+    private boolean isFivePoint(int cell, int pieceType) {
+        if (!isEmpty(cell)) {
+            return false;
+        }
+        int x = BitBoard.cellX(cell);
+        int y = BitBoard.cellY(cell);
+        board.set(x, y, pieceType);
+        boolean isFive = board.isFiveInLine(x, y);
+        board.clear(x, y);
+        return isFive;
+    }
+
+    private boolean isEmpty(int cell) {
+        return board.isEmpty(BitBoard.cellX(cell), BitBoard.cellY(cell));
+    }
+
+    private void play(int cell, int pieceType) {
+        board.set(BitBoard.cellX(cell), BitBoard.cellY(cell), pieceType);
+        hash ^= ZobristKeys.key(cell, pieceType);
+    }
+
+    private void undo(int cell, int pieceType) {
+        board.clear(BitBoard.cellX(cell), BitBoard.cellY(cell));
+        hash ^= ZobristKeys.key(cell, pieceType);
+    }
+
+    static boolean contains(int[] cells, int length, int cell) {
+        for (int i = 0; i < length; i++) {
+            if (cells[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
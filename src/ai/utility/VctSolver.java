@@ -0,0 +1,224 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+/**
+ * This class is a solver of victory by continuous threats (VCT).
+ * <p>
+ * The attacker plays fours and open threes, and the defender tries every defence against them, see
+ * {@link ThreatBoard}. Every node of the attacker first tries a victory by continuous fours with
+ * {@link VcfSolver}.
+ * <p>
+ * The search is iterative deepening on the number of threats within a time limit, so the shortest win is found
+ * first. A found win is proven, while no win within the time limit means unknown, not a proven loss.
+ *
+ * @author Cirun Zhang
+ * @version 1.1
+ */
+public class VctSolver {
+    /**
+     * Number of entries of the hash table, a power of 2
+     */
+    private static final int TABLE_SIZE = 1 << 16;
+
+    private final VcfSolver vcfSolver = new VcfSolver();
+
+    /**
+     * Hash table of failed positions, the key of a position with the attacker to move and the remaining depth it
+     * failed with, 0 for an empty entry
+     */
+    private final long[] keys = new long[TABLE_SIZE];
+
+    private final int[] depths = new int[TABLE_SIZE];
+
+    private ThreatBoard board;
+
+    private int attacker;
+
+    private long deadline;
+
+    private boolean isTimeout;
+
+    private int nodes;
+
+    /**
+     * Winning line of the last solve in cell indexes, the moves of the attacker and the defender alternate. A
+     * defender has more than one defence against a three, the line follows the last one refuted
+     */
+    private final int[] winningLine = new int[2 * AiConst.VCT_MAXIMUM_DEPTH + 2 * AiConst.VCF_MAXIMUM_DEPTH + 1];
+
+    private int lineLength;
+
+    /**
+     * Defences of the threats indexed by the remaining depth of the node of the threat, and the tiles completing five
+     * of the last four, allocated once since the search reuses them at every node
+     */
+    private final int[][] defenceBuffers = new int[AiConst.VCT_MAXIMUM_DEPTH + 1][BitBoard.CELL_NUM];
+
+    private final int[] points = new int[VcfSolver.MAX_FIVE_POINTS];
+
+    /**
+     * Searches a victory by continuous threats
+     *
+     * @param chess     2-dimension array represents the chessboard
+     * @param pieceType Type of the attacker which moves next, 1 for black and -1 for white
+     * @param timeLimit Time limit in milliseconds
+     * @return A boolean indicates whether a winning line is found, false if the result is unknown
+     */
+    public boolean solve(int[][] chess, int pieceType, long timeLimit) {
+        board = new ThreatBoard(chess, pieceType, vcfSolver);
+        attacker = pieceType;
+        deadline = System.nanoTime() + timeLimit * 1000000;
+        isTimeout = false;
+        nodes = 0;
+        lineLength = 0;
+
+        //a four of the defender must be blocked first, and only a five answers a double four
+        int forcedCell = board.findFive(attacker * -1);
+        if (forcedCell == -2) {
+            return board.solveVcf() && copyVcfLine(0);
+        }
+
+        for (int depth = 1; depth <= AiConst.VCT_MAXIMUM_DEPTH && !isTimeout; depth++) {
+            if (vct(forcedCell, depth, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the winning line of the last successful solve
+     *
+     * @return Cell indexes of the moves from the first move of the attacker to the four which cannot be blocked
+     */
+    public int[] getWinningLine() {
+        int[] line = new int[lineLength];
+        System.arraycopy(winningLine, 0, line, 0, lineLength);
+        return line;
+    }
+
+    /**
+     * Returns the number of nodes of the attacker searched by the last solve
+     *
+     * @return Number of nodes
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Determines whether the last solve ran out of time
+     *
+     * @return A boolean indicates whether the search is unfinished
+     */
+    public boolean isTimeout() {
+        return isTimeout;
+    }
+
+    /**
+     * Depth-first search of threats with the attacker to move
+     *
+     * @param forcedCell     The tile completing a four of the defender which must be taken, or -1
+     * @param remainingDepth Number of threats the attacker may still make before the final fours
+     * @param ply            Index of the move in the winning line
+     * @return A boolean indicates whether the attacker wins
+     */
+    private boolean vct(int forcedCell, int remainingDepth, int ply) {
+        nodes++;
+        if (System.nanoTime() >= deadline) {
+            isTimeout = true;
+        }
+        if (isTimeout) {
+            return false;
+        }
+        long cutSolves = vcfSolver.getCutSolves();
+        if (board.solveVcf()) {
+            return copyVcfLine(ply);
+        }
+        if (remainingDepth == 0) {
+            return false;
+        }
+        long key = board.getHash() ^ ZobristKeys.turnKey(attacker);
+        int index = (int)key & (TABLE_SIZE - 1);
+        if (keys[index] == key && depths[index] >= remainingDepth) {
+            return false;
+        }
+
+        int[] defences = defenceBuffers[remainingDepth];
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            if ((forcedCell >= 0 && cell != forcedCell) || !board.isEmpty(cell)) {
+                continue;
+            }
+            //a four which cannot be blocked is found by the victory by continuous fours, so a four has one point
+            boolean isFour = board.fivePoints(cell, attacker, points) > 0;
+            if (!isFour && !board.isPotentialThreat(cell)) {
+                continue;
+            }
+
+            board.play(cell, attacker);
+            int defenceNum = 1;
+            if (isFour) {
+                defences[0] = points[0];
+            } else {
+                defenceNum = board.threeDefences(cell, defences);
+            }
+            boolean isWin = defenceNum >= 0 && defend(defences, defenceNum, remainingDepth, ply);
+            board.undo(cell, attacker);
+
+            if (isWin) {
+                winningLine[ply] = cell;
+                return true;
+            }
+            if (isTimeout) {
+                return false;
+            }
+        }
+
+        //a victory by continuous fours stopped by its node limit leaves the node unknown
+        if (vcfSolver.getCutSolves() == cutSolves) {
+            keys[index] = key;
+            depths[index] = remainingDepth;
+        }
+        return false;
+    }
+
+    /**
+     * Searches every defence of the defender
+     *
+     * @param defences       Cell indexes of the defences
+     * @param defenceNum     Number of the defences
+     * @param remainingDepth Remaining depth of the node of the threat
+     * @param ply            Index of the threat in the winning line
+     * @return A boolean indicates whether all defences are refuted
+     */
+    private boolean defend(int[] defences, int defenceNum, int remainingDepth, int ply) {
+        //the deeper nodes use the buffers of smaller remaining depths, so the defences are kept
+        for (int i = 0; i < defenceNum; i++) {
+            int defence = defences[i];
+            board.play(defence, attacker * -1);
+            //a double four of the defender cannot be blocked, a single four must be blocked next
+            int pointNum = board.fivePoints(defence, attacker * -1, points);
+            boolean isRefuted = pointNum < 2 && vct(pointNum == 1 ? points[0] : -1, remainingDepth - 1, ply + 2);
+            board.undo(defence, attacker * -1);
+            if (!isRefuted) {
+                return false;
+            }
+            winningLine[ply + 1] = defence;
+        }
+        return true;
+    }
+
+    /**
+     * Appends the winning line of the victory by continuous fours
+     *
+     * @param ply Index of its first move in the winning line
+     * @return Always true
+     */
+    private boolean copyVcfLine(int ply) {
+        int[] line = board.getVcfLine();
+        System.arraycopy(line, 0, winningLine, ply, line.length);
+        lineLength = ply + line.length;
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package ai.utility;
+
+import ai.constant.AiConst;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class holds the 64-bit Zobrist keys of the chessboard.
+ * <p>
+ * The hash of a position is the XOR of the keys of all its stones, so placing or removing a stone changes the hash
+ * by one XOR. The keys are generated from a fixed seed, hence the hash of a position is the same in every game and
+ * every run, and cached search results stay valid across games.
+ *
+ * @author Cirun Zhang
+ * @version 1.0
+ */
+public class ZobristKeys {
+    private static final long SEED = 0x5DEECE66DL;
+
+    /**
+     * Keys of black and white stones, indexed by the cell index
+     */
+    private static final long[] BLACK_KEYS = new long[BitBoard.CELL_NUM];
+
+    private static final long[] WHITE_KEYS = new long[BitBoard.CELL_NUM];
+
+    /**
+     * Key XORed into the hash when white is to move
+     */
+    private static final long WHITE_TURN_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int cell = 0; cell < BitBoard.CELL_NUM; cell++) {
+            BLACK_KEYS[cell] = random.nextLong();
+            WHITE_KEYS[cell] = random.nextLong();
+        }
+        WHITE_TURN_KEY = random.nextLong();
+    }
+
+    private ZobristKeys() {
+    }
+
+    /**
+     * Returns the key of a stone
+     *
+     * @param cell      Cell index of the stone
+     * @param pieceType Type of the piece, 1 for black and -1 for white
+     * @return Zobrist key
+     */
+    public static long key(int cell, int pieceType) {
+        return pieceType == AiConst.BLACK_STONE ? BLACK_KEYS[cell] : WHITE_KEYS[cell];
+    }
+
+    /**
+     * Returns the key of the player to move, the same stones with a different player to move is a different
+     * search node
+     *
+     * @param pieceType Type of the piece to move, 1 for black and -1 for white
+     * @return Zobrist key
+     */
+    public static long turnKey(int pieceType) {
+        return pieceType == AiConst.BLACK_STONE ? 0 : WHITE_TURN_KEY;
+    }
+
+    /**
+     * Calculates the hash of a chessboard from scratch
+     *
+     * @param chess 2-dimensional array represents the chessboard
+     * @return Zobrist hash
+     */
+    public static long hash(int[][] chess) {
+        long hash = 0;
+        for (int i = 0; i < BitBoard.SIZE; i++) {
+            for (int j = 0; j < BitBoard.SIZE; j++) {
+                if (chess[i][j] != AiConst.EMPTY_STONE) {
+                    hash ^= key(BitBoard.cellIndex(i, j), chess[i][j]);
+                }
+            }
+        }
+        return hash;
+    }
+}
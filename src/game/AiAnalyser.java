@@ -105,6 +105,15 @@ public class AiAnalyser {
             case GameConst.MONTE_CARLO_TREE_SEARCH_EXPLORATION_BIASED:
                 result = MonteCarlo.monteCarloTreeSearch(chess, SelectionType.EXPLORATION_BIASED);
                 break;
+            case GameConst.PRINCIPAL_VARIATION_SEARCH:
+                result = PrincipalVariation.startPrincipalVariationSearch(chess);
+                break;
+            case GameConst.YOUNG_BROTHERS_WAIT:
+                result = YoungBrothersWait.startYoungBrothersWaitSearch(chess);
+                break;
+            case GameConst.PROOF_NUMBER_SEARCH:
+                result = ProofNumber.startProofNumberSearch(chess);
+                break;
             default:
                 System.err.println("Invalid Ai Index");
                 return false;
@@ -154,6 +163,18 @@ public class AiAnalyser {
                 System.out.println("THREAT_SPACE_SEARCH wins");
                 System.out.println("First move: " + isMoveFirst);
                 break;
+            case GameConst.PRINCIPAL_VARIATION_SEARCH:
+                System.out.println("PRINCIPAL_VARIATION_SEARCH wins");
+                System.out.println("First move: " + isMoveFirst);
+                break;
+            case GameConst.YOUNG_BROTHERS_WAIT:
+                System.out.println("YOUNG_BROTHERS_WAIT wins");
+                System.out.println("First move: " + isMoveFirst);
+                break;
+            case GameConst.PROOF_NUMBER_SEARCH:
+                System.out.println("PROOF_NUMBER_SEARCH wins");
+                System.out.println("First move: " + isMoveFirst);
+                break;
             default:
                 System.err.println("Invalid Ai Index");
         }
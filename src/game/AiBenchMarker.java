@@ -2,6 +2,7 @@ package game;
 
 import ai.Agent;
 import ai.constant.AiConst;
+import ai.utility.BitBoard;
 import ai.utility.ChessboardScanUtils;
 import ai.utility.HeuristicChessboardUtils;
 import gui.constant.GuiConst;
@@ -67,14 +68,13 @@ public class AiBenchMarker extends Agent {
     }
 
     private static int markPiece(int[][] chess, int x, int y, int pieceType) {
-        return
-            HeuristicChessboardUtils.eval(ChessboardScanUtils.horizontalAdjacentPieces10(chess, x, y, pieceType, '1'))
-                + HeuristicChessboardUtils
-                .eval(ChessboardScanUtils.verticalAdjacentPieces10(chess, x, y, pieceType, '1'))
-                + HeuristicChessboardUtils
-                .eval(ChessboardScanUtils.diagonalAdjacentPieces10(chess, x, y, pieceType, '1'))
-                + HeuristicChessboardUtils
-                .eval(ChessboardScanUtils.antiDiagonalAdjacentPieces10(chess, x, y, pieceType, '1'));
+        int score = 0;
+        for (int direction = 0; direction < BitBoard.DIRECTION_NUM; direction++) {
+            score += HeuristicChessboardUtils.evalCode(
+                ChessboardScanUtils.adjacentCode(chess, x, y, direction, ChessboardScanUtils.RADIUS_10, pieceType),
+                2 * ChessboardScanUtils.RADIUS_10 + 1);
+        }
+        return score;
     }
 
     /**
@@ -3,7 +3,6 @@ package game;
 import ai.Agent;
 import ai.constant.AiConst;
 import gui.constant.GuiConst;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This class is used for game controlling, it controls and preserve some important functions and data
@@ -20,11 +19,6 @@ public class GameController {
      */
     public static int[][] chess;
 
-    /**
-     * Stores Zobrist key-values
-     */
-    public static int[][][] zobrist;
-
     /**
      * Index of the current AI agent
      */
@@ -47,26 +41,11 @@ public class GameController {
         chess = new int[GuiConst.TILE_NUM_PER_ROW][GuiConst.TILE_NUM_PER_ROW];
     }
 
-    /**
-     * Regenerates all Zobrist key-values
-     */
-    private static void resetZobrist(){
-        zobrist = new int[2][GuiConst.TILE_NUM_PER_ROW][GuiConst.TILE_NUM_PER_ROW];
-        for(int i = 0; i < zobrist.length; i++){
-            for(int j = 0; j < zobrist[0].length; j++){
-                for(int k = 0; k < zobrist[0][0].length; k++){
-                    zobrist[i][j][k] = ThreadLocalRandom.current().nextInt(0, Integer.MAX_VALUE);
-                }
-            }
-        }
-    }
-
     /**
      * Initialize the game
      */
     public static void initGame(){
         resetChessboard();
-        resetZobrist();
     }
 
     public static int getAiIndex(){
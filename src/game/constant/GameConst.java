@@ -65,6 +65,21 @@ public class GameConst {
      */
     public static final int MONTE_CARLO_TREE_SEARCH_EXPLORATION_BIASED = 9;
 
+    /**
+     * Code for negamax principal variation search
+     */
+    public static final int PRINCIPAL_VARIATION_SEARCH = 10;
+
+    /**
+     * Code for parallel alpha beta pruning with young brothers wait concept
+     */
+    public static final int YOUNG_BROTHERS_WAIT = 11;
+
+    /**
+     * Code for depth-first proof-number search
+     */
+    public static final int PROOF_NUMBER_SEARCH = 12;
+
     /**
      * Code for human move first
      */
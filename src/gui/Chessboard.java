@@ -296,6 +296,15 @@ public class Chessboard extends JPanel {
             case GameConst.MONTE_CARLO_TREE_SEARCH_EXPLORATION_BIASED:
                 result = MonteCarlo.monteCarloTreeSearch(chess, SelectionType.EXPLORATION_BIASED);
                 break;
+            case GameConst.PRINCIPAL_VARIATION_SEARCH:
+                result = PrincipalVariation.startPrincipalVariationSearch(chess);
+                break;
+            case GameConst.YOUNG_BROTHERS_WAIT:
+                result = YoungBrothersWait.startYoungBrothersWaitSearch(chess);
+                break;
+            case GameConst.PROOF_NUMBER_SEARCH:
+                result = ProofNumber.startProofNumberSearch(chess);
+                break;
             default:
                 System.err.println("Invalid Ai Index");
                 return;
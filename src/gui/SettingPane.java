@@ -26,6 +26,15 @@ public class SettingPane extends JFrame {
         tmp1.add(tip1);
         tmp1.add(depthSpinner);
 
+        //Search thread controller, used by the parallel alpha beta searches
+        JLabel tip5 = new JLabel("Search Threads");
+
+        JSpinner threadSpinner = new JSpinner(new SpinnerNumberModel(1, 1,
+            Runtime.getRuntime().availableProcessors(), 1));
+        JPanel tmp5 = new JPanel();
+        tmp5.add(tip5);
+        tmp5.add(threadSpinner);
+
         //Ai agent controller
         JPanel tmp2 = new JPanel();
         JComboBox<String> comboBox = new JComboBox<>();
@@ -40,6 +49,9 @@ public class SettingPane extends JFrame {
         comboBox.addItem("MCTS with waning exploration factor");
         comboBox.addItem("MCTS with advantaging fast wins");
         comboBox.addItem("Heuristics based MCTS");
+        comboBox.addItem("Principal variation search");
+        comboBox.addItem("Young brothers wait concept");
+        comboBox.addItem("Proof-number search");
         comboBox.setSelectedIndex(2);
         comboBox.addActionListener(new ActionListener() {
             @Override
@@ -76,14 +88,17 @@ public class SettingPane extends JFrame {
             @Override
             public void actionPerformed(ActionEvent e) {
                 int depth = (int)depthSpinner.getValue();
+                int threads = (int)threadSpinner.getValue();
                 int aiIndex = comboBox.getSelectedIndex();
                 int firstMove = comboBox2.getSelectedIndex();
                 Agent.setMaximumSearchDepth(depth);
+                Agent.setThreadCount(threads);
                 GameController.setAiIndex(aiIndex);
                 GameController.setGameInProgress(true);
                 setWhichPlayerMoveFirst(firstMove);
                 MainFrame.resetGame();
                 Background.addMessage("Search tree depth: " + depth);
+                Background.addMessage("Search threads: " + threads);
                 Background.addMessage("AI strategy: " + comboBox.getSelectedItem());
                 dispose();
             }
@@ -91,10 +106,11 @@ public class SettingPane extends JFrame {
         tmp4.add(confirmButton);
 
         boxLayout.add(tmp1);
+        boxLayout.add(tmp5);
         boxLayout.add(tmp2);
         boxLayout.add(tmp3);
         boxLayout.add(tmp4);
-        this.setSize(300, 200);
+        this.setSize(300, 240);
         this.setResizable(false);
         this.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
         this.add(boxLayout);